@@ -0,0 +1,60 @@
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compares opening a text task file with opening the same tasks in the
+ * binary format, both fully and for just one screen of rows
+ * The app opens binary files fully, one screen is what a tool reading
+ * a few rows through BinaryTaskFile pays
+ * Runs headless, no JavaFX toolkit needed
+ * Usage: BinaryLoadBenchmark [lines] [rounds]
+ */
+public class BinaryLoadBenchmark {
+
+    private static final int VISIBLE_ROWS = 40;
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File text = File.createTempFile("tasks", ".txt");
+        File binary = File.createTempFile("tasks", BinaryTaskFile.EXTENSION);
+        text.deleteOnExit();
+        binary.deleteOnExit();
+        TaskFileGenerator.generate(text, lines);
+        BinaryTaskFile.convert(text, binary);
+        System.out.printf("%,d lines, text %,d bytes, binary %,d bytes%n", lines, text.length(), binary.length());
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            TaskStore parsed = new TaskStore();
+            TaskParser.parse(text, parsed);
+            long textNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int full;
+            try (BinaryTaskFile file = new BinaryTaskFile(binary)) {
+                TaskStore store = new TaskStore();
+                file.readInto(store);
+                full = store.size();
+            }
+            long fullNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int visible = 0;
+            try (BinaryTaskFile file = new BinaryTaskFile(binary)) {
+                for (int i = 0; i < Math.min(VISIBLE_ROWS, file.size()); i++) {
+                    visible += file.task(i).getTask().length();
+                }
+            }
+            long visibleNanos = System.nanoTime() - start;
+
+            if (full != parsed.size()) {
+                throw new IllegalStateException(full + " != " + parsed.size());
+            }
+            System.out.printf("round %d: text %,d ms, binary full %,d ms, binary first %d rows %,d us (%d)%n",
+                    round, textNanos / 1_000_000, fullNanos / 1_000_000,
+                    VISIBLE_ROWS, visibleNanos / 1_000, visible);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.SimpleBooleanProperty;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+
+/**
+ * Compares the heap a loaded list takes, and the time to sort it, between
+ * the old one-object-graph-per-task list and the column store
+ * Runs headless, only needs javafx.base for the old task's property
+ * Usage: ColumnStoreBenchmark [tasks]
+ */
+public class ColumnStoreBenchmark {
+
+    /**
+     * A task laid out the way Task was before the column store
+     */
+    static class ObjectTask {
+        final String task;
+        final LocalDate date;
+        final BooleanProperty completed = new SimpleBooleanProperty(false);
+
+        ObjectTask(String task, LocalDate date) {
+            this.task = task;
+            this.date = date;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File file = File.createTempFile("tasks", ".txt");
+        file.deleteOnExit();
+        TaskFileGenerator.generate(file, count);
+        System.out.printf("%,d tasks, %,d bytes%n", count, file.length());
+
+        long before = usedHeap();
+        List<ObjectTask> objects = loadObjects(file);
+        long objectBytes = usedHeap() - before;
+
+        before = usedHeap();
+        TaskStore store = FileUtilities.load(file);
+        long storeBytes = usedHeap() - before;
+
+        System.out.printf("objects: %,d bytes (%.1f per task)%n", objectBytes, objectBytes / (double) count);
+        System.out.printf("columns: %,d bytes (%.1f per task)%n", storeBytes, storeBytes / (double) count);
+        System.out.printf("%.1fx less heap%n", objectBytes / (double) storeBytes);
+
+        for (int round = 0; round < 5; round++) {
+            sortRound(objects, store, new Random(round));
+        }
+    }
+
+    /**
+     * Shuffles both lists the same way, then times sorting them back
+     */
+    private static void sortRound(List<ObjectTask> objects, TaskStore store, Random random) {
+        int count = objects.size();
+        int[] shuffle = new int[count];
+        for (int i = 0; i < count; i++) {
+            shuffle[i] = i;
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = shuffle[i];
+            shuffle[i] = shuffle[j];
+            shuffle[j] = swap;
+        }
+        List<ObjectTask> shuffled = new ArrayList<>(count);
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            shuffled.add(objects.get(shuffle[i]));
+            ids[i] = store.idAt(shuffle[i]);
+        }
+        store.remove(0, count);
+        store.insert(0, ids, count);
+
+        long start = System.nanoTime();
+        shuffled.sort(Comparator.comparing((ObjectTask t) -> t.date).thenComparing(t -> t.task));
+        long objectNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        store.sort();
+        long storeNanos = System.nanoTime() - start;
+
+        for (int i = 0; i < count; i++) {
+            if (!shuffled.get(i).task.equals(store.text(store.idAt(i)))) {
+                throw new IllegalStateException("Sort orders differ at " + i);
+            }
+        }
+        objects.clear();
+        objects.addAll(shuffled);
+        System.out.printf("sort: objects %,d ms, columns %,d ms%n", objectNanos / 1_000_000, storeNanos / 1_000_000);
+    }
+
+    /**
+     * The load loop from before the column store, one object graph per task
+     */
+    private static List<ObjectTask> loadObjects(File file) throws IOException {
+        List<ObjectTask> tasks = new ArrayList<>();
+        try (Scanner scanner = new Scanner(file)) {
+            while (scanner.hasNextLine()) {
+                String[] parts = scanner.nextLine().split(" - ", 3);
+                ObjectTask task = new ObjectTask(parts[0].trim(), LocalDate.parse(parts[1].trim()));
+                task.completed.set(Boolean.parseBoolean(parts[2].trim()));
+                tasks.add(task);
+            }
+        }
+        ((ArrayList<ObjectTask>) tasks).trimToSize();
+        return tasks;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,112 @@
+import javafx.collections.ListChangeListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks a compound change is undone and redone as one step
+ * Deletes a handful of tasks together, then adds, checks and deletes tasks
+ * in one compound change. Doing, undoing and redoing each step must fire
+ * one list change, ask for one save, and take the list back to exactly
+ * where it was before or after the step
+ * Usage: CompoundUndoCheck [tasks] [deleted]
+ */
+public class CompoundUndoCheck {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+    private static final Metrics.Counter SAVE_REQUESTS = Metrics.counter("save.requests");
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int deleted = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        List<String> failures = new ArrayList<>();
+        TaskService service = new TaskService(failures::add, 60_000);
+        File file = TaskFileGenerator.generateTemp(count);
+        service.open(file);
+        int[] changes = new int[1];
+        service.getTasks().addListener((ListChangeListener<Task>) change -> changes[0]++);
+
+        List<Task> selected = service.read(() -> {
+            List<Task> every = new ArrayList<>();
+            for (int i = 0; i < deleted; i++) {
+                every.add(service.getTasks().get(i * (service.size() / deleted)));
+            }
+            return every;
+        });
+        check(service, changes, "deleting " + deleted + " selected tasks", () -> service.delete(selected));
+
+        Task kept = service.read(() -> service.getTasks().get(0));
+        Task gone = service.read(() -> service.getTasks().get(1));
+        check(service, changes, "adding, checking and deleting in one step", () -> service.compound(() -> {
+            service.add("First added", BASE);
+            service.add("Second added", BASE.plusDays(3));
+            service.setCompleted(kept, !kept.isCompleted());
+            service.delete(gone);
+        }));
+
+        service.shutdown();
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("ok");
+    }
+
+    /**
+     * Runs a step, then undoes and redoes it, checking each fires one list
+     * change, asks for one save and leaves the list as expected
+     */
+    private static void check(TaskService service, int[] changes, String name, Runnable step) {
+        List<String> before = lines(service);
+        run(service, changes, name, step);
+        List<String> after = lines(service);
+        if (after.equals(before)) {
+            fail(name + " changed nothing");
+        }
+        run(service, changes, "undoing " + name, service::undo);
+        expect("undoing " + name, before, lines(service));
+        run(service, changes, "redoing " + name, service::redo);
+        expect("redoing " + name, after, lines(service));
+        long start = System.nanoTime();
+        service.undo();
+        System.out.printf("%s: one change and one save each way, undo took %.2f ms%n",
+                name, (System.nanoTime() - start) / 1e6);
+        expect("undoing " + name + " again", before, lines(service));
+    }
+
+    private static void run(TaskService service, int[] changes, String name, Runnable step) {
+        int changesBefore = changes[0];
+        long savesBefore = SAVE_REQUESTS.get();
+        step.run();
+        int fired = changes[0] - changesBefore;
+        long saves = SAVE_REQUESTS.get() - savesBefore;
+        if (fired != 1 || saves != 1) {
+            fail(name + " fired " + fired + " list changes and asked for " + saves + " saves, expected 1 and 1");
+        }
+    }
+
+    private static List<String> lines(TaskService service) {
+        return service.read(() -> {
+            List<String> lines = new ArrayList<>();
+            for (Task task : service.getTasks()) {
+                lines.add(task.serialize());
+            }
+            return lines;
+        });
+    }
+
+    private static void expect(String name, List<String> expected, List<String> actual) {
+        if (!actual.equals(expected)) {
+            fail(name + " left " + actual.size() + " tasks, expected the " + expected.size() + " from before");
+        }
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
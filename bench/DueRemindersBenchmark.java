@@ -0,0 +1,82 @@
+import java.util.Random;
+
+/**
+ * Times DueReminders updates against a list of open tasks
+ * Checks, unchecks and re-dates random rows, then rolls the day over a
+ * few times, comparing the counts with a full scan of the list after each
+ * round. The cost per update should stay flat as the list grows.
+ * Runs headless, no JavaFX toolkit needed
+ * Usage: DueRemindersBenchmark [tasks] [updates]
+ */
+public class DueRemindersBenchmark {
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int today = 20_000;
+        Random random = new Random(42);
+
+        for (int size = tasks / 8; size <= tasks; size *= 2) {
+            TaskStore store = new TaskStore();
+            for (int i = 0; i < size; i++) {
+                store.add("Task number " + i, today - 500 + random.nextInt(1000), i % 3 == 0);
+            }
+            long start = System.nanoTime();
+            DueReminders reminders = new DueReminders(store, today);
+            long resetNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                int id = store.idAt(random.nextInt(size));
+                if (random.nextBoolean()) {
+                    store.setCompleted(id, !store.isCompleted(id));
+                } else {
+                    store.setEpochDay(id, today - 500 + random.nextInt(1000));
+                }
+                reminders.update(id);
+            }
+            long updateNanos = System.nanoTime() - start;
+            check(store, reminders);
+
+            for (int day = today + 1; day <= today + 30; day++) {
+                reminders.advanceTo(day);
+                check(store, reminders);
+            }
+            start = System.nanoTime();
+            for (int day = today + 31; day <= today + 60; day++) {
+                reminders.advanceTo(day);
+            }
+            long advanceNanos = System.nanoTime() - start;
+            reminders.advanceTo(today - 1000);
+            check(store, reminders);
+
+            System.out.printf("%,9d tasks: track all %,d ms, %,.0f ns per update, %,.0f ns per new day%n",
+                    size, resetNanos / 1_000_000, updateNanos / (double) updates, advanceNanos / 30.0);
+        }
+    }
+
+    /**
+     * Compares the kept counts with a scan of the whole list
+     */
+    private static void check(TaskStore store, DueReminders reminders) {
+        int overdue = 0;
+        int dueToday = 0;
+        for (int i = 0; i < store.size(); i++) {
+            int id = store.idAt(i);
+            if (!store.isCompleted(id)) {
+                int day = store.epochDay(id);
+                overdue += day < reminders.getToday() ? 1 : 0;
+                dueToday += day == reminders.getToday() ? 1 : 0;
+                DueReminders.Status expected = day < reminders.getToday() ? DueReminders.Status.OVERDUE
+                        : day == reminders.getToday() ? DueReminders.Status.DUE_TODAY : DueReminders.Status.NONE;
+                if (reminders.status(id) != expected) {
+                    throw new IllegalStateException("Row " + id + " is " + reminders.status(id) + ", not " + expected);
+                }
+            }
+        }
+        if (overdue != reminders.getOverdue() || dueToday != reminders.getDueToday()) {
+            throw new IllegalStateException("Kept " + reminders.getOverdue() + " overdue, " + reminders.getDueToday()
+                    + " due today; scan found " + overdue + ", " + dueToday);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times ExternalSort on a file bigger than each run, for several run sizes
+ * Smaller runs use less heap but spill more files and merge more of them.
+ * Every output is checked to be sorted, then merged with itself with and
+ * without dedupe. Run with a small heap, e.g. -Xmx64m, to see the sort
+ * stay within it. Runs headless, no JavaFX toolkit needed
+ * Usage: ExternalSortBenchmark [lines] [run MB...]
+ */
+public class ExternalSortBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        long[] runMegabytes = args.length > 1
+                ? Arrays.stream(args, 1, args.length).mapToLong(Long::parseLong).toArray()
+                : new long[] {1, 4, 16, 64};
+
+        File input = TaskFileGenerator.generateTemp(lines);
+        File out = File.createTempFile("sorted", ".txt");
+        out.deleteOnExit();
+        System.out.printf("%,d lines, %,d bytes, heap %,d MB%n", lines, input.length(),
+                Runtime.getRuntime().maxMemory() >> 20);
+
+        for (long megabytes : runMegabytes) {
+            long start = System.nanoTime();
+            ExternalSort.Stats stats = ExternalSort.sort(List.of(input), out, megabytes << 20);
+            long nanos = System.nanoTime() - start;
+            check(out, stats.getWritten(), lines);
+            System.out.printf("run %3d MB: %4d runs, %,6d ms, %,.0f lines/s%n", megabytes, stats.getRuns(),
+                    nanos / 1_000_000, lines / (nanos / 1e9));
+        }
+
+        File merged = File.createTempFile("merged", ".txt");
+        merged.deleteOnExit();
+        for (boolean dedupe : new boolean[] {false, true}) {
+            long start = System.nanoTime();
+            ExternalSort.Stats stats = ExternalSort.merge(List.of(out, out), merged, dedupe);
+            long nanos = System.nanoTime() - start;
+            check(merged, stats.getWritten(), dedupe ? lines : 2L * lines);
+            System.out.printf("merge 2 files%s: %,6d ms, %,.0f lines/s%n", dedupe ? " with dedupe" : "",
+                    nanos / 1_000_000, stats.getRead() / (nanos / 1e9));
+        }
+    }
+
+    /**
+     * Streams a file back, checking it's sorted by date then description
+     */
+    private static void check(File file, long written, long expected) throws IOException {
+        long[] count = {0};
+        int[] lastDay = {Integer.MIN_VALUE};
+        byte[][] lastText = {new byte[0]};
+        TaskParser.parse(file, (buf, start, end, epochDay, completed) -> {
+            int order = epochDay != lastDay[0] ? Integer.compare(epochDay, lastDay[0])
+                    : Arrays.compareUnsigned(buf, start, end, lastText[0], 0, lastText[0].length);
+            if (order < 0) {
+                throw new IllegalStateException(file + " out of order at line " + count[0]);
+            }
+            lastDay[0] = epochDay;
+            lastText[0] = Arrays.copyOfRange(buf, start, end);
+            count[0]++;
+        });
+        if (count[0] != expected || written != expected) {
+            throw new IllegalStateException(file + ": " + count[0] + " lines, " + written + " written, expected "
+                    + expected);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks a journal survives being cut off at any byte
+ * A TaskService in journal mode adds, checks, edits, deletes, undoes and
+ * redoes over a small file, some descriptions running over several lines.
+ * Each step writes one record; the list and the journal's length are kept
+ * after every step. The journal is then truncated at every byte offset and
+ * the file reloaded, which must give back the list as it was after the
+ * last record that fits whole before the cut, no more and no less
+ * Usage: JournalTruncationCheck [tasks] [steps]
+ */
+public class JournalTruncationCheck {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        File file = TaskFileGenerator.generateTemp(count);
+        File journalFile = TaskJournal.journalFor(file);
+        journalFile.deleteOnExit();
+        List<String> failures = new ArrayList<>();
+        TaskService service = new TaskService(failures::add, 60_000);
+        service.open(file);
+        service.setJournaling(true);
+
+        // Journal length and list after the header, then after each record
+        List<Long> ends = new ArrayList<>();
+        List<List<String>> lists = new ArrayList<>();
+        ends.add(journalFile.length());
+        lists.add(lines(service.snapshot()));
+        Random random = new Random(42);
+        List<Task> added = new ArrayList<>();
+        for (int step = 0; step < steps; step++) {
+            step(service, random, added, step);
+            long length = journalFile.length();
+            if (length != ends.get(ends.size() - 1)) {
+                ends.add(length);
+                lists.add(lines(service.snapshot()));
+            }
+        }
+        service.shutdown();
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+        if (journal.length != ends.get(ends.size() - 1)) {
+            throw new AssertionError("journal is " + journal.length + " bytes, " + ends.get(ends.size() - 1)
+                    + " were appended");
+        }
+        int record = 0;
+        for (int cut = 0; cut <= journal.length; cut++) {
+            Files.write(journalFile.toPath(), Arrays.copyOf(journal, cut));
+            while (record + 1 < ends.size() && ends.get(record + 1) <= cut) {
+                record++;
+            }
+            // A journal cut inside its header is ignored, the same as one holding no records
+            List<String> expected = lists.get(record);
+            List<String> replayed = lines(FileUtilities.load(file));
+            if (!replayed.equals(expected)) {
+                throw new AssertionError("cut at byte " + cut + " of " + journal.length + " replayed "
+                        + replayed.size() + " tasks, expected the " + expected.size() + " after record "
+                        + record + firstDifference(expected, replayed));
+            }
+        }
+        System.out.printf("%,d records in %,d bytes, every cut replays the whole records before it%n",
+                ends.size() - 1, journal.length);
+    }
+
+    /**
+     * Makes one edit that writes one journal record
+     */
+    private static void step(TaskService service, Random random, List<Task> added, int step) {
+        LocalDate date = BASE.plusDays(random.nextInt(60));
+        Task task = pick(service, random);
+        switch (random.nextInt(7)) {
+            case 0 -> added.add(service.add(description(random, step), date));
+            case 1 -> {
+                if (task != null) {
+                    service.setCompleted(task, !task.isCompleted());
+                }
+            }
+            case 2 -> {
+                if (task != null) {
+                    service.edit(task, description(random, step), date);
+                }
+            }
+            case 3 -> {
+                if (task != null) {
+                    service.delete(task);
+                }
+            }
+            case 4 -> service.undo();
+            case 5 -> service.redo();
+            default -> {
+                if (!added.isEmpty()) {
+                    Task own = added.get(random.nextInt(added.size()));
+                    if (service.read(() -> service.getTasks().contains(own))) {
+                        service.setCompleted(own, !own.isCompleted());
+                    }
+                }
+            }
+        }
+    }
+
+    private static String description(Random random, int step) {
+        return switch (random.nextInt(3)) {
+            case 0 -> "Pack for trip " + step + "\nsocks\nchargers";
+            case 1 -> "Übergabe " + step + " – notes\nsecond line";
+            default -> "Call about invoice " + step;
+        };
+    }
+
+    private static Task pick(TaskService service, Random random) {
+        return service.read(() -> {
+            TaskList tasks = service.getTasks();
+            return tasks.isEmpty() ? null : tasks.get(random.nextInt(tasks.size()));
+        });
+    }
+
+    /**
+     * @return each task as its serialized line, sorted so equal lists compare equal
+     */
+    private static List<String> lines(TaskStore store) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < store.size(); i++) {
+            lines.add(store.view(store.idAt(i)).serialize());
+        }
+        lines.sort(null);
+        return lines;
+    }
+
+    private static String firstDifference(List<String> expected, List<String> replayed) {
+        for (int i = 0; i < Math.min(expected.size(), replayed.size()); i++) {
+            if (!expected.get(i).equals(replayed.get(i))) {
+                return ": expected " + expected.get(i) + ", replayed " + replayed.get(i);
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks listener counts stay flat while tasks are added and undone over and over
+ * Each cycle adds a task, undoes and redoes it, checks and unchecks a kept
+ * task, and deletes and restores both, so the same Task objects go in and
+ * out of the list again and again. Every cycle a checkbox change must reach
+ * the controller's listener once and push one undo step, and every so often
+ * the listeners on the list and on the kept task's properties are counted,
+ * which must not move from the first count. The heap still grows by the
+ * store's row for each new task, which is kept so undo can put it back
+ * Usage: ListenerLeakCheck [tasks] [cycles]
+ */
+public class ListenerLeakCheck {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+    private static final int CHECKPOINTS = 10;
+
+    public static void main(String[] args) throws IOException, ReflectiveOperationException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000;
+        int cycles = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        List<String> failures = new ArrayList<>();
+        TaskService service = new TaskService(failures::add, 60_000);
+        File file = TaskFileGenerator.generateTemp(count);
+        service.open(file);
+        int[] reported = new int[1];
+        service.setOnCompletionChanged((task, oldValue, newValue) -> reported[0]++);
+
+        Task kept = service.add("Kept across cycles", BASE);
+        int size = service.size();
+        int[] first = null;
+        System.out.printf("%,d tasks, %,d add/undo cycles%n", size, cycles);
+        System.out.println("cycle       list  completed  display  heap MB");
+        for (int cycle = 0; cycle <= cycles; cycle++) {
+            if (cycle % (cycles / CHECKPOINTS) == 0) {
+                int[] counts = {
+                        listeners(service.getTasks()),
+                        listeners(kept.completedProperty()),
+                        listeners(kept.displayProperty())
+                };
+                System.out.printf("%,-10d %5d %10d %8d %8d%n", cycle, counts[0], counts[1], counts[2], usedMegabytes());
+                if (first == null) {
+                    first = counts;
+                } else if (!Arrays.equals(first, counts)) {
+                    fail("listener counts moved from " + Arrays.toString(first)
+                            + " to " + Arrays.toString(counts) + " after " + cycle + " cycles");
+                }
+                if (cycle == cycles) {
+                    break;
+                }
+            }
+
+            int before = reported[0];
+            Task task = service.add("Cycle " + cycle, BASE.plusDays(cycle % 60));
+            service.undo();
+            service.redo();
+            service.setCompleted(kept, true);
+            service.undo();
+            service.delete(kept);
+            service.undo();
+            service.delete(task);
+            service.undo();
+            // Leaves just the add on the stack, so this takes the task back out
+            service.undo();
+
+            if (reported[0] - before != 2) {
+                fail("a check and its undo reached the listener " + (reported[0] - before)
+                        + " times in cycle " + cycle + ", expected 2");
+            }
+            if (kept.isCompleted() || service.size() != size
+                    || !service.read(() -> service.getTasks().contains(kept))) {
+                fail("cycle " + cycle + " left " + service.size() + " tasks, expected " + size
+                        + " with the kept task unchecked; a checkbox change pushed more than one undo step");
+            }
+        }
+        service.shutdown();
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("ok");
+    }
+
+    /**
+     * Counts the listeners on a JavaFX list or property
+     * Reads the listener helper JavaFX keeps in a private field, so this is
+     * for checking only and may need updating with JavaFX
+     * @param observable list or property
+     * @return invalidation and change listeners added to it
+     */
+    private static int listeners(Object observable) throws ReflectiveOperationException {
+        for (Class<?> type = observable.getClass(); type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                String name = field.getType().getSimpleName();
+                if (name.equals("ExpressionHelper") || name.equals("ListListenerHelper")) {
+                    field.setAccessible(true);
+                    Object helper = field.get(observable);
+                    if (helper == null) {
+                        return 0;
+                    } else if (helper.getClass().getSimpleName().startsWith("Single")) {
+                        return 1;
+                    }
+                    return size(helper, "invalidationSize") + size(helper, "changeSize");
+                }
+            }
+        }
+        throw new IllegalArgumentException("no listener helper in " + observable.getClass().getName());
+    }
+
+    private static int size(Object helper, String name) throws ReflectiveOperationException {
+        Field field = helper.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.getInt(helper);
+    }
+
+    private static long usedMegabytes() {
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) >> 20;
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(1);
+    }
+}
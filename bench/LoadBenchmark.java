@@ -0,0 +1,69 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+
+/**
+ * Compares the old Scanner + String.split load path with TaskParser
+ * Runs headless, no JavaFX toolkit needed
+ * Usage: LoadBenchmark [lines] [rounds]
+ */
+public class LoadBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        File file = File.createTempFile("tasks", ".txt");
+        file.deleteOnExit();
+        TaskFileGenerator.generate(file, lines);
+        System.out.printf("%,d lines, %,d bytes%n", lines, file.length());
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            int scanned = scannerLoad(file).size();
+            long scannerNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TaskStore parsed = new TaskStore();
+            TaskParser.parse(file, parsed);
+            long parserNanos = System.nanoTime() - start;
+
+            if (scanned != parsed.size()) {
+                throw new IllegalStateException(scanned + " != " + parsed.size());
+            }
+            System.out.printf("round %d: scanner %,d ms (%,.0f lines/s), parser %,d ms (%,.0f lines/s)%n",
+                    round,
+                    scannerNanos / 1_000_000, lines / (scannerNanos / 1e9),
+                    parserNanos / 1_000_000, lines / (parserNanos / 1e9));
+        }
+    }
+
+    /**
+     * The load loop FileUtilities used before TaskParser
+     * @param file to load
+     * @return tasks loaded
+     */
+    static List<Task> scannerLoad(File file) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        try (Scanner scanner = new Scanner(file)) {
+            while (scanner.hasNextLine()) {
+                String line = scanner.nextLine();
+                if (!line.isBlank()) {
+                    String[] parts = line.split(" - ", 3);
+                    if (parts.length == 3) {
+                        try {
+                            Task task = new Task(parts[0].trim(), LocalDate.parse(parts[1].trim()));
+                            task.setCompleted(Boolean.parseBoolean(parts[2].trim()));
+                            tasks.add(task);
+                        } catch (Exception ignored) {
+                        }
+                    }
+                }
+            }
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the old PrintWriter save path with FileUtilities.save
+ * Runs headless, no JavaFX toolkit needed
+ * Usage: SaveBenchmark [tasks] [rounds]
+ */
+public class SaveBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<Task> tasks = new ArrayList<>(count);
+        TaskStore store = new TaskStore();
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("Task number " + i + " for project " + (i % 97), base.plusDays(i % 1000));
+            task.setCompleted(i % 3 == 0);
+            tasks.add(task);
+            store.add(task.getTask(), (int) task.getDate().toEpochDay(), task.isCompleted());
+        }
+
+        File file = File.createTempFile("tasks", ".txt");
+        file.deleteOnExit();
+        System.out.printf("%,d tasks%n", count);
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            printWriterSave(file, tasks);
+            long printWriterNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            FileUtilities.save(file, store);
+            long channelNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: PrintWriter %,d ms, atomic channel %,d ms (%,d bytes)%n",
+                    round, printWriterNanos / 1_000_000, channelNanos / 1_000_000, file.length());
+        }
+    }
+
+    /**
+     * The save loop FileUtilities used before TaskWriter
+     * @param file to save to
+     * @param tasks to save
+     */
+    static void printWriterSave(File file, List<Task> tasks) throws IOException {
+        try (PrintWriter pw = new PrintWriter(file)) {
+            for (Task task : tasks) {
+                pw.println(task.serialize());
+            }
+        }
+    }
+}
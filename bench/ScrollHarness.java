@@ -0,0 +1,120 @@
+import javafx.animation.AnimationTimer;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.scene.Scene;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.stage.Stage;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Scrolls a task table the way the app sets it up and reports frame times
+ * The table gets the app's columns, rows and stylesheet through
+ * Controller.setUpTable, then jumps a fixed number of rows every pulse
+ * while checking a task now and then. Reports the time between frames and
+ * the time each pulse spends in CSS and layout, after a warm-up.
+ * A frame over one and a half 60 Hz frames counts as dropped.
+ * Needs a display, the window closes by itself
+ * Usage: ScrollHarness [rows] [frames] [rows per frame]
+ */
+public class ScrollHarness extends Application {
+
+    private static final int WARM_UP_FRAMES = 60;
+    private static final long FRAME_BUDGET_NANOS = 16_666_667;
+
+    private static int rows = 100_000;
+    private static int frames = 600;
+    private static int rowsPerFrame = 25;
+
+    public static void main(String[] args) {
+        rows = args.length > 0 ? Integer.parseInt(args[0]) : rows;
+        frames = args.length > 1 ? Integer.parseInt(args[1]) : frames;
+        rowsPerFrame = args.length > 2 ? Integer.parseInt(args[2]) : rowsPerFrame;
+        launch(args);
+    }
+
+    @Override
+    public void start(Stage stage) {
+        int today = (int) LocalDate.now().toEpochDay();
+        TaskStore store = new TaskStore();
+        for (int i = 0; i < rows; i++) {
+            store.add("Task number " + i + " for project " + (i % 97), today - 30 + i % 120, i % 3 == 0);
+        }
+        store.sort();
+        TaskList tasks = new TaskList(store);
+        DueReminders reminders = new DueReminders(store, today);
+
+        TableView<Task> table = new TableView<>(tasks);
+        TableColumn<Task, Boolean> doneCol = new TableColumn<>("Completion");
+        TableColumn<Task, String> taskCol = new TableColumn<>("Task");
+        doneCol.setPrefWidth(100);
+        taskCol.setPrefWidth(400);
+        table.getColumns().add(doneCol);
+        table.getColumns().add(taskCol);
+        Controller.setUpTable(table, doneCol, taskCol, task -> reminders.status(task.getId()), task -> { });
+
+        Scene scene = new Scene(table, 600, 400);
+        scene.getStylesheets().add(Controller.class.getResource("/Todolist.css").toExternalForm());
+        long[] layoutStart = new long[1];
+        long[] layout = new long[frames];
+        long[] interval = new long[frames];
+        int[] frame = {-WARM_UP_FRAMES};
+        scene.addPreLayoutPulseListener(() -> layoutStart[0] = System.nanoTime());
+        scene.addPostLayoutPulseListener(() -> {
+            if (frame[0] >= 0 && frame[0] < frames) {
+                layout[frame[0]] = System.nanoTime() - layoutStart[0];
+            }
+        });
+        stage.setScene(scene);
+        stage.setTitle("Scroll harness");
+        stage.show();
+
+        new AnimationTimer() {
+            private long last;
+            private int top;
+
+            @Override
+            public void handle(long now) {
+                if (last != 0 && frame[0] >= 0) {
+                    interval[frame[0]] = now - last;
+                }
+                last = now;
+                if (++frame[0] == frames) {
+                    stop();
+                    report(interval, layout);
+                    Platform.exit();
+                    return;
+                }
+                top = (top + rowsPerFrame) % Math.max(1, rows - 20);
+                table.scrollTo(top);
+                if (frame[0] % 30 == 0) {
+                    // A checkbox change should restyle one row, not the table
+                    Task task = tasks.get(top);
+                    task.setCompleted(!task.isCompleted());
+                    reminders.update(task.getId());
+                }
+            }
+        }.start();
+    }
+
+    private static void report(long[] interval, long[] layout) {
+        long[] sorted = interval.clone();
+        Arrays.sort(sorted);
+        long dropped = Arrays.stream(interval).filter(nanos -> nanos > FRAME_BUDGET_NANOS * 3 / 2).count();
+        long[] layoutSorted = layout.clone();
+        Arrays.sort(layoutSorted);
+        System.out.printf("%,d rows, %d frames scrolling %d rows each%n", rows, frames, rowsPerFrame);
+        System.out.printf("frame time p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms, %d dropped%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                sorted[sorted.length - 1] / 1e6, dropped);
+        System.out.printf("css + layout p50 %.2f ms, p95 %.2f ms, max %.2f ms%n",
+                percentile(layoutSorted, 0.50), percentile(layoutSorted, 0.95),
+                layoutSorted[layoutSorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(percentile * (sorted.length - 1)))] / 1e6;
+    }
+}
@@ -0,0 +1,99 @@
+import javafx.collections.transformation.FilteredList;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+/**
+ * Compares TaskIndex queries with a linear tasks.filtered(...) scan
+ * Then edits and removes rows until the index drops its stale words, and
+ * checks it still agrees with the scan
+ * Runs headless, only needs javafx.base for the observable list
+ * Usage: SearchBenchmark [tasks] [rounds]
+ */
+public class SearchBenchmark {
+
+    private static final String[] QUERIES = {
+            "number 12345",
+            "project 42",
+            "proj 4 from:2024-03-01 to:2024-03-31",
+            "from:2024-06-01 to:2024-06-07 is:open",
+            "is:done project 7",
+            "is:done",
+            "from:2024-01-01 to:2024-12-31 is:open",
+    };
+
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        File file = File.createTempFile("tasks", ".txt");
+        file.deleteOnExit();
+        TaskFileGenerator.generate(file, count);
+        TaskStore store = FileUtilities.load(file);
+        store.sort();
+        TaskList tasks = new TaskList(store);
+        System.out.printf("%,d tasks%n", count);
+
+        TaskIndex index = new TaskIndex(store);
+        long start = System.nanoTime();
+        index.search(TaskQuery.parse("warmup"));
+        System.out.printf("index built in %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        for (int round = 0; round < rounds; round++) {
+            runQueries(index, tasks, "round " + round);
+        }
+
+        Random random = new Random(1);
+        for (int i = 0; i < count / 4; i++) {
+            int id = store.idAt(random.nextInt(store.size()));
+            store.setText(id, "Renamed " + i + " for project " + (i % 89));
+            index.textChanged(id);
+        }
+        for (int id : store.remove(0, store.size() / 10)) {
+            index.removed(id);
+        }
+        runQueries(index, tasks, "edited");
+    }
+
+    private static void runQueries(TaskIndex index, TaskList tasks, String label) {
+        for (String text : QUERIES) {
+            TaskQuery query = TaskQuery.parse(text);
+            long start = System.nanoTime();
+            int[] ids = index.search(query);
+            long indexNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            FilteredList<Task> filtered = tasks.filtered(linear(query));
+            int scanned = filtered.size();
+            long scanNanos = System.nanoTime() - start;
+
+            if (scanned != ids.length) {
+                throw new IllegalStateException(label + " " + text + ": " + ids.length + " != " + scanned);
+            }
+            System.out.printf("%-8s %-40s %,7d hits: index %,8.2f ms, filtered scan %,8.2f ms%n",
+                    label, text, ids.length, indexNanos / 1e6, scanNanos / 1e6);
+        }
+    }
+
+    /**
+     * The same query as a predicate over tasks, the way a FilteredList would run it
+     */
+    private static Predicate<Task> linear(TaskQuery query) {
+        return task -> {
+            long day = task.getDate().toEpochDay();
+            if (day < query.getFromDay() || day > query.getToDay()
+                    || (query.getCompleted() != null && task.isCompleted() != query.getCompleted())) {
+                return false;
+            }
+            List<String> words = TaskIndex.words(task.getTask());
+            for (String prefix : query.getPrefixes()) {
+                if (words.stream().noneMatch(word -> word.startsWith(prefix))) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Launches the app in fresh JVMs and reports time-to-first-frame and
+ * time-to-interactive, as printed by StartupTimer
+ * Does one training run first to dump an AppCDS archive, then times runs
+ * with and without it. Needs a display, each window closes by itself
+ * Run it with the same --module-path, --add-modules and -cp the app uses,
+ * those are handed down to every launch
+ * Usage: StartupHarness [runs]
+ */
+public class StartupHarness {
+
+    private static final Pattern REPORT = Pattern.compile("startup first-frame=(-?\\d+)ms interactive=(\\d+)ms");
+
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        File archive = File.createTempFile("todolist", ".jsa");
+        archive.delete();
+        archive.deleteOnExit();
+        launch("-XX:ArchiveClassesAtExit=" + archive);
+        System.out.printf("archive %,d bytes%n", archive.length());
+
+        measure("default", runs);
+        measure("appcds", runs, "-XX:SharedArchiveFile=" + archive);
+    }
+
+    private static void measure(String name, int runs, String... options) throws IOException, InterruptedException {
+        long[] firstFrame = new long[runs];
+        long[] interactive = new long[runs];
+        for (int run = 0; run < runs; run++) {
+            long[] times = launch(options);
+            firstFrame[run] = times[0];
+            interactive[run] = times[1];
+        }
+        System.out.printf("%-8s first frame %4d ms, interactive %4d ms (median of %d)%n",
+                name, median(firstFrame), median(interactive), runs);
+    }
+
+    /**
+     * Starts the app in a new JVM and waits for it to exit
+     * @param options extra JVM options
+     * @return milliseconds from launch to the first frame and to interactive
+     */
+    private static long[] launch(String... options) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        String modulePath = System.getProperty("jdk.module.path");
+        if (modulePath != null) {
+            command.add("--module-path");
+            command.add(modulePath);
+            command.add("--add-modules");
+            command.add("javafx.controls,javafx.fxml");
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("-D" + StartupTimer.REPORT_PROPERTY + "=true");
+        command.add("-D" + StartupTimer.EXIT_PROPERTY + "=true");
+        command.addAll(Arrays.asList(options));
+        command.add("Main");
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long[] times = null;
+        try (BufferedReader out = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line; (line = out.readLine()) != null; ) {
+                Matcher matcher = REPORT.matcher(line);
+                if (matcher.find()) {
+                    times = new long[]{Long.parseLong(matcher.group(1)), Long.parseLong(matcher.group(2))};
+                } else {
+                    System.err.println(line);
+                }
+            }
+        }
+        int exit = process.waitFor();
+        if (times == null) {
+            throw new IllegalStateException("app exited with " + exit + " without reporting startup");
+        }
+        return times;
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+
+/**
+ * Writes synthetic task files for the benchmarks
+ * Tasks spread over 1000 days from 2024-01-01, every third one completed
+ * Usage: TaskFileGenerator file tasks
+ */
+public class TaskFileGenerator {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TaskFileGenerator <file> <tasks>");
+            System.exit(2);
+        }
+        generate(new File(args[0]), Integer.parseInt(args[1]));
+    }
+
+    /**
+     * Writes a synthetic task file
+     * @param file to write
+     * @param lines number of tasks
+     * @throws IOException if issue writing
+     */
+    public static void generate(File file, int lines) throws IOException {
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        try (PrintWriter pw = new PrintWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                pw.println("Task number " + i + " for project " + (i % 97)
+                        + " - " + base.plusDays(i % 1000) + " - " + (i % 3 == 0));
+            }
+        }
+    }
+
+    /**
+     * Writes a synthetic task file to a temp file deleted on exit
+     * @param lines number of tasks
+     * @return the new file
+     * @throws IOException if issue writing
+     */
+    public static File generateTemp(int lines) throws IOException {
+        File file = File.createTempFile("tasks", ".txt");
+        file.deleteOnExit();
+        generate(file, lines);
+        return file;
+    }
+}
@@ -0,0 +1,189 @@
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hammers a TaskService from writer and reader threads at once
+ * Writers add, check, edit, delete, clear and undo; readers search, snapshot
+ * and walk the list, checking it is sorted every time they look.
+ * Ends by checking the list, the index and the saved file agree
+ * Usage: TaskServiceStress [tasks] [writers] [readers] [seconds]
+ */
+public class TaskServiceStress {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int writers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        ConcurrentLinkedQueue<String> failures = new ConcurrentLinkedQueue<>();
+        TaskService service = new TaskService(failures::add, 50);
+        File file = TaskFileGenerator.generateTemp(count);
+        service.open(file);
+        System.out.printf("%,d tasks, %d writers, %d readers, %d s%n", count, writers, readers, seconds);
+
+        AtomicLong writes = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(writers + readers);
+        for (int w = 0; w < writers; w++) {
+            Random random = new Random(w);
+            start("writer-" + w, done, failures, () -> {
+                while (System.nanoTime() < end) {
+                    write(service, random);
+                    writes.incrementAndGet();
+                }
+            });
+        }
+        for (int r = 0; r < readers; r++) {
+            Random random = new Random(1000 + r);
+            start("reader-" + r, done, failures, () -> {
+                while (System.nanoTime() < end) {
+                    read(service, random);
+                    reads.incrementAndGet();
+                }
+            });
+        }
+        done.await();
+        service.shutdown();
+
+        check(service, file);
+        System.out.printf("%,d writes, %,d reads, %,d tasks left%n", writes.get(), reads.get(), service.size());
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println("ok");
+    }
+
+    private static void start(String name, CountDownLatch done, ConcurrentLinkedQueue<String> failures,
+                              Runnable work) {
+        Thread thread = new Thread(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException | AssertionError e) {
+                failures.add(name + ": " + e);
+            } finally {
+                done.countDown();
+            }
+        }, name);
+        thread.start();
+    }
+
+    private static void write(TaskService service, Random random) {
+        int op = random.nextInt(100);
+        if (op < 40) {
+            service.add("Stress " + random.nextInt(1000), BASE.plusDays(random.nextInt(1000)));
+        } else if (op < 50) {
+            Task task = pick(service, random);
+            if (task != null) {
+                service.setCompleted(task, !task.isCompleted());
+            }
+        } else if (op < 60) {
+            // The way a table checkbox changes it, through the task's property
+            Task task = pick(service, random);
+            if (task != null) {
+                task.completedProperty().set(!task.isCompleted());
+            }
+        } else if (op < 75) {
+            Task task = pick(service, random);
+            if (task != null) {
+                service.edit(task, "Edited " + random.nextInt(1000), BASE.plusDays(random.nextInt(1000)));
+            }
+        } else if (op < 85) {
+            Task task = pick(service, random);
+            if (task != null) {
+                service.delete(task);
+            }
+        } else if (op < 86) {
+            service.clearCompleted();
+        } else if (op < 95) {
+            service.undo();
+        } else {
+            service.redo();
+        }
+    }
+
+    /**
+     * Picks a random task under the read lock, it may be gone by the time it's used
+     */
+    private static Task pick(TaskService service, Random random) {
+        return service.read(() -> {
+            TaskList tasks = service.getTasks();
+            return tasks.isEmpty() ? null : tasks.get(random.nextInt(tasks.size()));
+        });
+    }
+
+    private static void read(TaskService service, Random random) {
+        int op = random.nextInt(3);
+        if (op == 0) {
+            int from = random.nextInt(1000);
+            TaskQuery query = TaskQuery.parse("from:" + BASE.plusDays(from) + " to:" + BASE.plusDays(from + 7));
+            // Views follow their rows, so check them under the same read lock as the search
+            service.read(() -> {
+                for (Task task : service.search(query)) {
+                    long day = task.getDate().toEpochDay();
+                    if (day < query.getFromDay() || day > query.getToDay()) {
+                        throw new AssertionError("search returned " + task + " outside " + query.getFromDay());
+                    }
+                }
+                return null;
+            });
+        } else if (op == 1) {
+            TaskStore snapshot = service.snapshot();
+            checkSorted(snapshot);
+        } else {
+            service.read(() -> {
+                checkSorted(service.getTasks().getStore());
+                return null;
+            });
+        }
+    }
+
+    private static void checkSorted(TaskStore store) {
+        for (int i = 1; i < store.size(); i++) {
+            if (store.compare(store.idAt(i - 1), store.idAt(i)) > 0) {
+                throw new AssertionError("list out of order at " + i);
+            }
+        }
+    }
+
+    /**
+     * Checks the index finds every task, the counts match the list, and the
+     * saved file reloads to the same list
+     */
+    private static void check(TaskService service, File file) throws IOException {
+        int size = service.size();
+        TaskStore store = service.snapshot();
+        int completed = store.positionsWhere(store::isCompleted).cardinality();
+        if (service.getStats().getCompleted() != completed) {
+            throw new AssertionError("stats count " + service.getStats().getCompleted() + " completed, list has "
+                    + completed);
+        }
+        int found = service.search(TaskQuery.parse("from:2000-01-01 to:2100-01-01")).size();
+        if (found != size) {
+            throw new AssertionError("index found " + found + " of " + size);
+        }
+        TaskStore saved = FileUtilities.load(file);
+        saved.sort();
+        TaskStore live = service.snapshot();
+        if (saved.size() != live.size()) {
+            throw new AssertionError("saved " + saved.size() + " tasks, list has " + live.size());
+        }
+        for (int i = 0; i < live.size(); i++) {
+            Task a = saved.view(saved.idAt(i));
+            Task b = live.view(live.idAt(i));
+            if (!a.serialize().equals(b.serialize())) {
+                throw new AssertionError("saved " + a.serialize() + ", list has " + b.serialize());
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Checks TaskStats against a full recount, then times its cost per edit
+ * The check drives a TaskService through random adds, checkbox toggles,
+ * date edits, deletes, undo, redo and clears, recounting the whole list
+ * after each step. The timing recounts one row per edit on lists of
+ * growing size, the cost should stay flat as the list grows.
+ * Needs javafx.base on the module path for TaskService's list events
+ * Usage: TaskStatsBenchmark [tasks] [edits] [checked steps]
+ */
+public class TaskStatsBenchmark {
+
+    public static void main(String[] args) {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 800_000;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 2_000_000;
+        int steps = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        check(steps);
+        System.out.printf("%,d random steps match a full recount%n", steps);
+
+        Random random = new Random(42);
+        int today = (int) LocalDate.now().toEpochDay();
+        for (int size = tasks / 16; size <= tasks; size *= 2) {
+            TaskStore store = new TaskStore();
+            for (int i = 0; i < size; i++) {
+                store.add("Task number " + i, today - 500 + random.nextInt(1000), i % 3 == 0);
+            }
+            long start = System.nanoTime();
+            TaskStats stats = new TaskStats(new TaskList(store), today);
+            long countNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < edits; i++) {
+                int id = store.idAt(random.nextInt(size));
+                if (random.nextBoolean()) {
+                    store.setCompleted(id, !store.isCompleted(id));
+                } else {
+                    store.setEpochDay(id, today - 500 + random.nextInt(1000));
+                }
+                stats.update(id);
+            }
+            long editNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int sum = 0;
+            for (int i = 0; i < edits; i++) {
+                sum += stats.getOverdue() + stats.getDueThisWeek();
+            }
+            long readNanos = System.nanoTime() - start;
+            System.out.printf("%,9d tasks: count all %,4d ms, %,4.0f ns per edit, %,4.0f ns per read (%d)%n",
+                    size, countNanos / 1_000_000, editNanos / (double) edits, readNanos / (double) edits,
+                    sum & 1);
+        }
+    }
+
+    /**
+     * Drives a service through random steps, recounting after each
+     */
+    private static void check(int steps) {
+        TaskService service = new TaskService(System.err::println, 60_000);
+        Random random = new Random(7);
+        LocalDate today = LocalDate.now();
+        List<Task> added = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            added.add(service.add("Task " + i, today.plusDays(random.nextInt(40) - 20)));
+        }
+        for (int step = 0; step < steps; step++) {
+            Task task = added.get(random.nextInt(added.size()));
+            switch (random.nextInt(9)) {
+                case 0, 1 -> service.setCompleted(task, !task.isCompleted());
+                case 2, 3 -> service.edit(task, task.getTask(), today.plusDays(random.nextInt(40) - 20));
+                case 4 -> service.delete(task);
+                case 5 -> added.add(service.add("Task " + (2_000 + step), today.plusDays(random.nextInt(40) - 20)));
+                case 6 -> service.undo();
+                case 7 -> service.redo();
+                default -> {
+                    if (random.nextInt(50) == 0) {
+                        if (random.nextBoolean()) {
+                            service.clearCompleted();
+                        } else {
+                            service.clearAll();
+                        }
+                    }
+                }
+            }
+            String problem = service.read(() -> recount(service.getTasks(), service.getStats()));
+            if (problem != null) {
+                throw new IllegalStateException("Step " + step + ": " + problem);
+            }
+        }
+        service.shutdown();
+    }
+
+    /**
+     * Recounts a list from scratch
+     * @return what differs from the kept counts, or null if nothing
+     */
+    private static String recount(TaskList tasks, TaskStats stats) {
+        int today = stats.getToday();
+        int completed = 0;
+        int overdue = 0;
+        int dueThisWeek = 0;
+        int[] open = new int[80];
+        int[] all = new int[80];
+        for (Task task : tasks) {
+            int day = (int) task.getDate().toEpochDay();
+            completed += task.isCompleted() ? 1 : 0;
+            overdue += !task.isCompleted() && day < today ? 1 : 0;
+            dueThisWeek += !task.isCompleted() && day >= today && day < today + TaskStats.WEEK_DAYS ? 1 : 0;
+            all[day - today + 40]++;
+            open[day - today + 40] += task.isCompleted() ? 0 : 1;
+        }
+        String expected = tasks.size() + " " + completed + " " + overdue + " " + dueThisWeek;
+        String kept = stats.getTotal() + " " + stats.getCompleted() + " " + stats.getOverdue() + " "
+                + stats.getDueThisWeek();
+        if (!expected.equals(kept)) {
+            return "kept total, completed, overdue, due this week " + kept + ", recount " + expected;
+        }
+        int[] keptAll = stats.histogram(today - 40, today + 39, false);
+        int[] keptOpen = stats.histogram(today - 40, today + 39, true);
+        for (int i = 0; i < all.length; i++) {
+            if (keptAll[i] != all[i] || keptOpen[i] != open[i]) {
+                return "day " + LocalDate.ofEpochDay(today - 40 + i) + " kept " + keptAll[i] + "/" + keptOpen[i]
+                        + ", recount " + all[i] + "/" + open[i];
+            }
+        }
+        return null;
+    }
+}
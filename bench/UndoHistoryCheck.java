@@ -0,0 +1,60 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks undo and redo give back tasks with their descriptions intact
+ * Clears a list, undoes the clear, then deletes and restores one of the
+ * tasks: the new delete drops the clear from the redo history, which must
+ * not free rows the delete's own undo still brings back
+ * Usage: UndoHistoryCheck
+ */
+public class UndoHistoryCheck {
+
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+
+    public static void main(String[] args) {
+        List<String> failures = new ArrayList<>();
+        TaskService service = new TaskService(failures::add, 60_000);
+        Task alpha = service.add("Alpha", BASE);
+        service.add("Beta", BASE.plusDays(1));
+        List<String> expected = lines(service);
+
+        service.clearAll();
+        service.undo();
+        check("undoing the clear", expected, lines(service));
+        service.delete(alpha);
+        service.undo();
+        check("undoing the delete after the clear's redo was dropped", expected, lines(service));
+        service.redo();
+        service.undo();
+        check("redoing and undoing the delete again", expected, lines(service));
+        service.clearAll();
+        service.undo();
+        check("clearing again and undoing", expected, lines(service));
+
+        service.shutdown();
+        if (!failures.isEmpty()) {
+            failures.forEach(System.err::println);
+            System.exit(1);
+        }
+        System.out.println(lines(service) + " ok");
+    }
+
+    private static List<String> lines(TaskService service) {
+        return service.read(() -> {
+            List<String> lines = new ArrayList<>();
+            for (Task task : service.getTasks()) {
+                lines.add(task.toString());
+            }
+            return lines;
+        });
+    }
+
+    private static void check(String step, List<String> expected, List<String> actual) {
+        if (!actual.equals(expected)) {
+            System.err.println(step + " gave " + actual + ", expected " + expected);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+import jmh.Workload;
+
+import java.io.File;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The operations the JMH benchmarks in bench/jmh measure
+ * Written here in the default package so they can use the app classes
+ */
+public class Workloads {
+
+    private static final long SEED = 42;
+
+    /**
+     * FileUtilities.load of a generated text file
+     */
+    public static class Load implements Workload {
+        private File file;
+
+        @Override
+        public void setUp(int size) throws Exception {
+            file = TaskFileGenerator.generateTemp(size);
+        }
+
+        @Override
+        public Object run() throws Exception {
+            return FileUtilities.load(file);
+        }
+    }
+
+    /**
+     * TaskParser.parse of a generated text file on a given number of threads
+     */
+    public static class ParallelParse implements Workload {
+        private File file;
+        private int threads = 1;
+
+        @Override
+        public void setThreads(int threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public void setUp(int size) throws Exception {
+            file = TaskFileGenerator.generateTemp(size);
+        }
+
+        @Override
+        public Object run() throws Exception {
+            TaskStore store = new TaskStore();
+            TaskParser.parse(file, store, threads);
+            return store;
+        }
+    }
+
+    /**
+     * FileUtilities.save of a loaded list
+     */
+    public static class Save implements Workload {
+        private File file;
+        private TaskStore tasks;
+
+        @Override
+        public void setUp(int size) throws Exception {
+            file = TaskFileGenerator.generateTemp(size);
+            tasks = FileUtilities.load(file);
+        }
+
+        @Override
+        public Object run() throws Exception {
+            FileUtilities.save(file, tasks);
+            return file;
+        }
+    }
+
+    /**
+     * Task.serialize() over every task of a list
+     */
+    public static class Serialize implements Workload {
+        private List<Task> tasks;
+
+        @Override
+        public void setUp(int size) throws Exception {
+            TaskList list = new TaskList(FileUtilities.load(TaskFileGenerator.generateTemp(size)));
+            tasks = new ArrayList<>(list);
+        }
+
+        @Override
+        public Object run() {
+            long length = 0;
+            for (Task task : tasks) {
+                length += task.serialize().length();
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Sorting tasks with the date-then-text comparator the controller used
+     * The run includes copying the shuffled list back, a small share of it
+     */
+    public static class ComparatorSort implements Workload {
+        private final Comparator<Task> comparator =
+                Comparator.comparing(Task::getDate).thenComparing(Task::getTask);
+        private List<Task> shuffled;
+        private List<Task> tasks;
+
+        @Override
+        public void setUp(int size) throws Exception {
+            TaskList list = new TaskList(FileUtilities.load(TaskFileGenerator.generateTemp(size)));
+            shuffled = new ArrayList<>(list);
+            Collections.shuffle(shuffled, new Random(SEED));
+            tasks = new ArrayList<>(size);
+        }
+
+        @Override
+        public Object run() {
+            tasks.clear();
+            tasks.addAll(shuffled);
+            tasks.sort(comparator);
+            return tasks;
+        }
+    }
+
+    /**
+     * TaskStore.sort() of a shuffled list, on the columns
+     */
+    public static class ColumnSort implements Workload {
+        private TaskStore store;
+        private int[] shuffled;
+
+        @Override
+        public void setUp(int size) throws Exception {
+            store = FileUtilities.load(TaskFileGenerator.generateTemp(size));
+            List<Integer> ids = new ArrayList<>(size);
+            for (int i = 0; i < store.size(); i++) {
+                ids.add(store.idAt(i));
+            }
+            Collections.shuffle(ids, new Random(SEED));
+            shuffled = ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        @Override
+        public void prepare() {
+            store.remove(0, store.size());
+            store.insert(0, shuffled, shuffled.length);
+        }
+
+        @Override
+        public Object run() {
+            return store.sort();
+        }
+    }
+
+    /**
+     * UndoManager.push then undo on a stack already holding size actions
+     * Undoing keeps the depth steady however many times it runs
+     */
+    public static class UndoPush implements Workload {
+        private UndoManager undoManager;
+        private Task task;
+
+        @Override
+        public void setUp(int size) {
+            undoManager = deepStack(size);
+            task = new Task("Pushed", LocalDate.of(2024, 1, 1));
+        }
+
+        @Override
+        public Object run() {
+            undoManager.push(new Action(() -> task.setCompleted(false), () -> task.setCompleted(true)));
+            undoManager.undo();
+            return undoManager;
+        }
+    }
+
+    /**
+     * UndoManager.undo then redo on a stack holding size actions
+     */
+    public static class UndoRedo implements Workload {
+        private UndoManager undoManager;
+
+        @Override
+        public void setUp(int size) {
+            undoManager = deepStack(size);
+        }
+
+        @Override
+        public Object run() {
+            undoManager.undo();
+            undoManager.redo();
+            return undoManager;
+        }
+    }
+
+    /**
+     * Builds an undo manager holding one checkbox toggle per task of a list
+     */
+    private static UndoManager deepStack(int depth) {
+        TaskList tasks = new TaskList();
+        UndoManager undoManager = new UndoManager();
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        for (int i = 0; i < depth; i++) {
+            Task task = new Task("Task number " + i, base.plusDays(i % 1000));
+            tasks.add(task);
+            undoManager.push(new Action(() -> task.setCompleted(false), () -> task.setCompleted(true)));
+            task.setCompleted(true);
+        }
+        return undoManager;
+    }
+}
@@ -0,0 +1,46 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of chunked text file parsing with the number of threads
+ * threads=1 is the sequential path, compare against it for the speedup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx3g"})
+public class ParseBenchmark {
+
+    @Param({"1000000", "5000000"})
+    private int tasks;
+
+    @Param({"1", "2", "4", "8"})
+    private int threads;
+
+    private Workload parse;
+
+    @Setup
+    public void setUp() throws Exception {
+        parse = Workload.create("Workloads$ParallelParse", tasks, threads);
+    }
+
+    @Benchmark
+    public Object parse() throws Exception {
+        return parse.run();
+    }
+}
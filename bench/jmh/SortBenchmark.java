@@ -0,0 +1,70 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting a shuffled list by date then text, with the comparator over
+ * tasks and with TaskStore.sort() over the columns
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx3g"})
+public class SortBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int tasks;
+
+    private Workload comparator;
+
+    /**
+     * The column store, shuffled again before every sort
+     */
+    @State(Scope.Benchmark)
+    public static class Columns {
+        @Param({"1000", "100000", "1000000"})
+        private int tasks;
+
+        private Workload sort;
+
+        @Setup
+        public void setUp() throws Exception {
+            sort = Workload.create("Workloads$ColumnSort", tasks);
+        }
+
+        @Setup(Level.Invocation)
+        public void shuffle() throws Exception {
+            sort.prepare();
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        comparator = Workload.create("Workloads$ComparatorSort", tasks);
+    }
+
+    @Benchmark
+    public Object comparator() throws Exception {
+        return comparator.run();
+    }
+
+    @Benchmark
+    public Object columns(Columns columns) throws Exception {
+        return columns.sort.run();
+    }
+}
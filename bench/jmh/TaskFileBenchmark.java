@@ -0,0 +1,49 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FileUtilities.load and save of generated text task files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx3g"})
+public class TaskFileBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int tasks;
+
+    private Workload load;
+    private Workload save;
+
+    @Setup
+    public void setUp() throws Exception {
+        load = Workload.create("Workloads$Load", tasks);
+        save = Workload.create("Workloads$Save", tasks);
+    }
+
+    @Benchmark
+    public Object load() throws Exception {
+        return load.run();
+    }
+
+    @Benchmark
+    public Object save() throws Exception {
+        return save.run();
+    }
+}
@@ -0,0 +1,49 @@
+package jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UndoManager push / undo / redo throughput with deep stacks
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "-Xmx3g"})
+public class UndoBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int depth;
+
+    private Workload pushUndo;
+    private Workload undoRedo;
+
+    @Setup
+    public void setUp() throws Exception {
+        pushUndo = Workload.create("Workloads$UndoPush", depth);
+        undoRedo = Workload.create("Workloads$UndoRedo", depth);
+    }
+
+    @Benchmark
+    public Object pushUndo() throws Exception {
+        return pushUndo.run();
+    }
+
+    @Benchmark
+    public Object undoRedo() throws Exception {
+        return undoRedo.run();
+    }
+}
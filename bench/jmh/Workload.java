@@ -0,0 +1,64 @@
+package jmh;
+
+/**
+ * One operation for a JMH benchmark to measure
+ * JMH refuses benchmarks in the default package, and a packaged class can't
+ * use the app's default package classes, so each operation is written as a
+ * default package class next to the app and reached through this interface
+ */
+public interface Workload {
+
+    /**
+     * Builds the data to work on, outside the measured time
+     * @param size number of tasks, or stack depth
+     * @throws Exception if setting up fails
+     */
+    void setUp(int size) throws Exception;
+
+    /**
+     * Sets how many threads a parallel workload may use, called before setUp
+     * @param threads to use, ignored by single-threaded workloads
+     */
+    default void setThreads(int threads) {
+    }
+
+    /**
+     * Resets anything run() used up, called before each run when needed
+     * @throws Exception if resetting fails
+     */
+    default void prepare() throws Exception {
+    }
+
+    /**
+     * Runs the measured operation once
+     * @return a result for the blackhole
+     * @throws Exception if the operation fails
+     */
+    Object run() throws Exception;
+
+    /**
+     * Builds a workload by its default package class name
+     * @param className of the workload
+     * @param size passed to setUp
+     * @return ready workload
+     * @throws Exception if it can't be built
+     */
+    static Workload create(String className, int size) throws Exception {
+        return create(className, size, 1);
+    }
+
+    /**
+     * Builds a parallel workload by its default package class name
+     * @param className of the workload
+     * @param size passed to setUp
+     * @param threads passed to setThreads
+     * @return ready workload
+     * @throws Exception if it can't be built
+     */
+    static Workload create(String className, int size, int threads) throws Exception {
+        Workload workload = (Workload) Class.forName(className).getDeclaredConstructor().newInstance();
+        workload.setThreads(threads);
+        workload.setUp(size);
+        return workload;
+    }
+}
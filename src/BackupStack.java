@@ -2,13 +2,15 @@ import java.util.EmptyStackException;
 
 /**
  * Stores old actions for undoing / redoing actions
- * Stack using a linked-list, allowing for O(1) popping and pushing
- * No size tracked, because we only care if the stack is empty or not
+ * Stack using a doubly linked list, allowing for O(1) popping and pushing
+ * at the top and O(1) dropping of the oldest action at the bottom
+ * Tracks its size and the estimated bytes its actions keep alive
  */
 public class BackupStack {
     private static class Node {
         UndoAction action;
         Node next;
+        Node previous;
 
         /**
          * 1-param constructor
@@ -20,6 +22,9 @@ public class BackupStack {
     }
 
     private Node top;
+    private Node bottom;
+    private int size;
+    private long bytes;
 
     /**
      * non-param constructor
@@ -35,7 +40,14 @@ public class BackupStack {
     public void push(UndoAction action) {
         Node node = new Node(action);
         node.next = top;
+        if (top != null) {
+            top.previous = node;
+        } else {
+            bottom = node;
+        }
         top = node;
+        size++;
+        bytes += action.estimatedBytes();
     }
 
     /**
@@ -48,6 +60,34 @@ public class BackupStack {
         }
         UndoAction action = top.action;
         top = top.next;
+        if (top != null) {
+            top.previous = null;
+        } else {
+            bottom = null;
+        }
+        size--;
+        bytes -= action.estimatedBytes();
+        return action;
+    }
+
+    /**
+     * Drops the oldest action off the bottom of the stack
+     * @return the dropped action
+     * @throws EmptyStackException when stack is empty
+     */
+    public UndoAction removeOldest() throws EmptyStackException {
+        if (isEmpty()) {
+            throw new EmptyStackException();
+        }
+        UndoAction action = bottom.action;
+        bottom = bottom.previous;
+        if (bottom != null) {
+            bottom.next = null;
+        } else {
+            top = null;
+        }
+        size--;
+        bytes -= action.estimatedBytes();
         return action;
     }
 
@@ -56,6 +96,9 @@ public class BackupStack {
      */
     public void clear() {
         top = null;
+        bottom = null;
+        size = 0;
+        bytes = 0;
     }
 
     /**
@@ -64,4 +107,20 @@ public class BackupStack {
     public boolean isEmpty() {
         return top == null;
     }
+
+    /**
+     * Get number of actions on the stack
+     * @return stack depth
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get estimated bytes kept alive by the actions on the stack
+     * @return estimated bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
 }
@@ -0,0 +1,292 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Compact binary task file, an optional alternative to the text format
+ * Layout: magic, task count, an int epoch day per task, a completion bit
+ * per task, an int offset per task into the description block, then the
+ * UTF-8 descriptions. The file is memory-mapped and a description is only
+ * decoded when a row asks for it, which suits tools that read a few rows.
+ * Opening one in the app still copies every row into the list's store: the
+ * list is kept sorted and its reminders and counts read every date, and a
+ * mapping held for as long as the list is open would keep the file from
+ * being replaced on save on some systems. The binary format saves parsing,
+ * not the copy
+ */
+public class BinaryTaskFile implements Closeable {
+
+    public static final String EXTENSION = ".tbin";
+    private static final byte[] MAGIC = "TASKBIN1".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int daysStart;
+    private final int bitsStart;
+    private final int offsetsStart;
+    private final int textStart;
+
+    /**
+     * 1-param constructor, maps the file and checks its header
+     * @param file to map
+     * @throws IOException if issue with the file or it isn't a binary task file
+     */
+    public BinaryTaskFile(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Binary task file too large: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] magic = new byte[MAGIC.length];
+            if (buffer.limit() >= HEADER_SIZE) {
+                buffer.get(0, magic);
+            }
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a binary task file: " + file);
+            }
+            size = buffer.getInt(MAGIC.length);
+            long bits = ((size + 63L) / 64) * Long.BYTES;
+            long text = HEADER_SIZE + (long) size * Integer.BYTES + bits + (size + 1L) * Integer.BYTES;
+            if (size < 0 || text > buffer.limit()) {
+                throw new IOException("Corrupt binary task file: " + file);
+            }
+            daysStart = HEADER_SIZE;
+            bitsStart = daysStart + size * Integer.BYTES;
+            offsetsStart = bitsStart + (int) bits;
+            textStart = (int) text;
+            checkOffsets(file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        } catch (RuntimeException e) {
+            channel.close();
+            throw new IOException("Corrupt binary task file: " + file, e);
+        }
+    }
+
+    /**
+     * Check if a file should be read and written in the binary format
+     * @param file to check
+     * @return true if it has the binary extension
+     */
+    public static boolean isBinary(File file) {
+        return file.getName().endsWith(EXTENSION);
+    }
+
+    /**
+     * Get number of tasks in the file
+     * @return task count
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get a task's due date without building a LocalDate
+     * @param index of the task
+     * @return due date as an epoch day
+     */
+    public int epochDay(int index) {
+        return buffer.getInt(daysStart + checkIndex(index) * Integer.BYTES);
+    }
+
+    /**
+     * Get a task's completion
+     * @param index of the task
+     * @return completed value
+     */
+    public boolean isCompleted(int index) {
+        long word = buffer.getLong(bitsStart + (checkIndex(index) >>> 6) * Long.BYTES);
+        return (word & (1L << index)) != 0;
+    }
+
+    /**
+     * Decodes a task's description, only touching that task's bytes
+     * @param index of the task
+     * @return description
+     */
+    public String description(int index) {
+        int offset = offsetsStart + checkIndex(index) * Integer.BYTES;
+        int start = buffer.getInt(offset);
+        int end = buffer.getInt(offset + Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(textStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Builds a full task for one row
+     * @param index of the task
+     * @return new task holding the row's values
+     */
+    public Task task(int index) {
+        Task task = new Task(description(index), LocalDate.ofEpochDay(epochDay(index)));
+        task.setCompleted(isCompleted(index));
+        return task;
+    }
+
+    /**
+     * Appends every task in the file to a store, in file order
+     * @param store to append to
+     */
+    public void readInto(TaskStore store) {
+        readInto(store, 0, size);
+    }
+
+    /**
+     * Appends a range of the file's tasks to a store, in file order
+     * @param store to append to
+     * @param from first task index
+     * @param to last task index, exclusive
+     */
+    public void readInto(TaskStore store, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int offset = offsetsStart + i * Integer.BYTES;
+            int start = buffer.getInt(offset);
+            int end = buffer.getInt(offset + Integer.BYTES);
+            store.add(buffer, textStart + start, end - start, epochDay(i), isCompleted(i));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Saves tasks in the binary format, through a temp file moved over the target
+     * @param file to save to
+     * @param tasks to save
+     * @throws IOException if issue writing
+     */
+    public static void save(File file, TaskStore tasks) throws IOException {
+        int size = tasks.size();
+        ByteBuffer columns = ByteBuffer.allocate(HEADER_SIZE + size * Integer.BYTES
+                + ((size + 63) / 64) * Long.BYTES + (size + 1) * Integer.BYTES);
+        columns.put(MAGIC).putInt(size);
+        for (int i = 0; i < size; i++) {
+            columns.putInt(tasks.epochDay(tasks.idAt(i)));
+        }
+        long word = 0;
+        for (int i = 0; i < size; i++) {
+            if (tasks.isCompleted(tasks.idAt(i))) {
+                word |= 1L << i;
+            }
+            if ((i & 63) == 63 || i == size - 1) {
+                columns.putLong(word);
+                word = 0;
+            }
+        }
+        int offset = 0;
+        columns.putInt(offset);
+        for (int i = 0; i < size; i++) {
+            offset = Math.addExact(offset, tasks.textLength(tasks.idAt(i)));
+            columns.putInt(offset);
+        }
+        columns.flip();
+
+        FileUtilities.writeReplacing(file, channel -> {
+            writeFully(channel, columns);
+            // Descriptions go out as they sit in the arena, no re-encoding
+            byte[] arena = tasks.textBytes();
+            ByteBuffer block = ByteBuffer.allocate(1 << 16);
+            for (int i = 0; i < size; i++) {
+                int id = tasks.idAt(i);
+                int length = tasks.textLength(id);
+                if (length > block.remaining()) {
+                    block.flip();
+                    writeFully(channel, block);
+                    block.clear();
+                }
+                if (length > block.capacity()) {
+                    writeFully(channel, ByteBuffer.wrap(arena, tasks.textOffset(id), length));
+                } else {
+                    block.put(arena, tasks.textOffset(id), length);
+                }
+            }
+            block.flip();
+            writeFully(channel, block);
+        });
+    }
+
+    /**
+     * Converts a task file between the text and binary formats
+     * The format of each file is picked by its extension
+     * @param from file to read
+     * @param to file to write
+     * @return number of lines in a text source that couldn't be parsed
+     * @throws IOException if issue with either file
+     */
+    public static int convert(File from, File to) throws IOException {
+        TaskStore tasks = new TaskStore();
+        int errors = 0;
+        if (isBinary(from)) {
+            try (BinaryTaskFile binary = new BinaryTaskFile(from)) {
+                binary.readInto(tasks);
+            }
+        } else {
+            errors = TaskParser.parse(from, tasks);
+        }
+        if (isBinary(to)) {
+            save(to, tasks);
+        } else {
+            FileUtilities.save(to, tasks);
+        }
+        return errors;
+    }
+
+    /**
+     * Command line converter
+     * Usage: BinaryTaskFile from.txt to.tbin, or the other way round
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BinaryTaskFile <from> <to>");
+            System.exit(2);
+        }
+        int errors = convert(new File(args[0]), new File(args[1]));
+        if (errors > 0) {
+            System.err.println("Parsing issue, " + errors + (errors == 1 ? " task" : " tasks") + " skipped");
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Checks every description lies within the file, so reading rows can't fail later
+     * Only the offset column is read, not the descriptions
+     */
+    private void checkOffsets(File file) throws IOException {
+        int textLength = buffer.limit() - textStart;
+        int previous = 0;
+        for (int i = 0; i <= size; i++) {
+            int offset = buffer.getInt(offsetsStart + i * Integer.BYTES);
+            if (i == 0 ? offset != 0 : offset < previous || offset > textLength) {
+                throw new IOException("Corrupt binary task file, bad description offset for task " + i + ": "
+                        + file);
+            }
+            previous = offset;
+        }
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+}
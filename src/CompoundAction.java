@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Several actions undone and redone as one
+ * Removals from the same list in a row are combined, so the group puts
+ * them back with one merge instead of one per removal
+ */
+public class CompoundAction implements UndoAction {
+    private final List<UndoAction> actions;
+
+    /**
+     * 1-param constructor
+     * @param actions in the order they were done
+     */
+    public CompoundAction(List<UndoAction> actions) {
+        List<UndoAction> combined = new ArrayList<>(actions.size());
+        for (UndoAction action : actions) {
+            int last = combined.size() - 1;
+            if (last >= 0 && action instanceof RemovalAction removal
+                    && combined.get(last) instanceof RemovalAction previous) {
+                RemovalAction merged = previous.mergedWith(removal);
+                if (merged != null) {
+                    combined.set(last, merged);
+                    continue;
+                }
+            }
+            combined.add(action);
+        }
+        this.actions = List.copyOf(combined);
+    }
+
+    /**
+     * Undoes the actions last first
+     */
+    @Override
+    public void undo() {
+        for (int i = actions.size() - 1; i >= 0; i--) {
+            actions.get(i).undo();
+        }
+    }
+
+    @Override
+    public void redo() {
+        for (UndoAction action : actions) {
+            action.redo();
+        }
+    }
+
+    @Override
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (UndoAction action : actions) {
+            bytes += action.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public void discard() {
+        for (UndoAction action : actions) {
+            action.discard();
+        }
+    }
+
+    /**
+     * Get number of actions grouped
+     * @return action count
+     */
+    public int size() {
+        return actions.size();
+    }
+}
@@ -1,16 +1,18 @@
 import javafx.application.Platform;
-import javafx.beans.binding.Bindings;
-import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.chart.CategoryAxis;
+import javafx.scene.chart.NumberAxis;
+import javafx.scene.chart.StackedBarChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.CheckBoxTableCell;
-import javafx.scene.paint.Color;
+import javafx.scene.input.KeyCode;
+import javafx.scene.layout.HBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
@@ -18,14 +20,21 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.time.LocalDate;
-import java.util.Comparator;
+import java.time.format.DateTimeFormatter;
 import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Controls the FXML of the task manager
- * Handles all button functions, sorting, and saving
+ * Hands every button to the TaskService and shows its list
  */
 public class Controller implements Initializable {
+
+    private static final Metrics.Histogram REFRESH_TIME = Metrics.histogram("refresh");
+
     @FXML
     private TableView<Task> tableView;
     @FXML
@@ -38,174 +47,188 @@ public class Controller implements Initializable {
     private TextArea taskDescription;
     @FXML
     private DatePicker date;
+    @FXML
+    private CheckMenuItem journalMode;
+    @FXML
+    private Menu openLists;
+    @FXML
+    private TextField search;
+    @FXML
+    private HBox loadingBar;
+    @FXML
+    private ProgressBar loadProgress;
+    @FXML
+    private Label dueSummary;
+    @FXML
+    private Label statsSummary;
 
-    private ObservableList<Task> tasks;
-    private UndoManager undoManager;
-    private File currentFile;
-    private final Comparator<Task> taskComparator =
-            Comparator.comparing(Task::getDate)
-                    .thenComparing(Task::getTask);
+    private TaskService service;
+    private TaskList tasks;
+    private TaskQuery query;
+    private FileLoad loading;
+    private Stage editStage;
+    private TaskController editController;
 
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
-        // instantiate tasks and backup stack
-        tasks = FXCollections.observableArrayList();
-        undoManager = new UndoManager();
-
-        // Load saved backup list
-        try {
-            currentFile = UserFile.loadLastFile();
-            if (currentFile != null) {
-                openFile(currentFile);
-            }
-        } catch (IOException e) {
-            new Alert(Alert.AlertType.ERROR,
-                    "File not found, list couldn't be retrieved").showAndWait();
-        }
+        // The service owns the tasks, undo history and saving, this only shows them
+        service = new TaskService(message -> onFxThread(() -> showError(message)),
+                SaveScheduler.DEFAULT_DELAY_MILLIS);
+        tasks = service.getTasks();
+        service.watchFiles(Platform::runLater, this::resolveConflict);
 
         // Set list to tableview
         tableView.setItems(tasks);
-
-        // Checkbox column
-        doneCol.setCellValueFactory(cell -> cell.getValue().completedProperty());
-        doneCol.setCellFactory(CheckBoxTableCell.forTableColumn(doneCol));
-
-        // Task text column
-        taskCol.setCellValueFactory(cell ->
-                new ReadOnlyStringWrapper(cell.getValue().toString())
-        );
-
-        // Gray out completed tasks
-        taskCol.setCellFactory(col -> new TableCell<>() {
-            @Override
-            protected void updateItem(String text, boolean empty) {
-                super.updateItem(text, empty);
-                if (empty || text == null) {
-                    setText(null);
-                } else {
-                    Task task = getTableView().getItems().get(getIndex());
-                    textFillProperty().bind(
-                            Bindings.when(task.completedProperty())
-                                    .then(Color.GRAY)
-                                    .otherwise(Color.BLACK)
-                    );
-                    setText(text);
-                }
+        setUpTable(tableView, doneCol, taskCol, service::dueStatus, this::openTask);
+
+        // Delete removes every selected task, undone as one step
+        tableView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        tableView.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.DELETE || event.getCode() == KeyCode.BACK_SPACE) {
+                service.delete(tableView.getSelectionModel().getSelectedItems());
+                refresh();
             }
         });
 
-        // Listen for a double click on a task to edit it
-        tableView.setRowFactory(tv -> {
-            TableRow<Task> row = new TableRow<>();
-            row.setOnMouseClicked(event -> {
-                if (!row.isEmpty() && event.getClickCount() == 2) {
-                    openTask(row.getItem());
-                }
-            });
-            return row;
-        });
-
-        // Attach checkbox to tasks
-        for (Task task : tasks) {
-            attachCompletionListener(task);
-        }
-        tasks.addListener((javafx.collections.ListChangeListener<Task>) change -> {
-            while (change.next()) {
-                if (change.wasAdded()) {
-                    for (Task task : change.getAddedSubList()) {
-                        attachCompletionListener(task);
-                    }
-
-                }
+        // Follow checkbox and list changes, which can come from any thread
+        service.setOnCompletionChanged((task, oldValue, newValue) -> {
+            if (query != null && query.getCompleted() != null) {
+                onFxThread(this::showResults);
             }
-            save();
+            onFxThread(this::showCounts);
         });
+        tasks.addListener((javafx.collections.ListChangeListener<Task>) change -> onFxThread(() -> {
+            showResults();
+            showCounts();
+        }));
+        service.remindDue(Platform::runLater, this::remind);
 
         // Save on close
         Platform.runLater(() -> {
             Stage stage = (Stage) tableView.getScene().getWindow();
             stage.setOnCloseRequest(event -> {
+                service.shutdown();
                 try {
-                    UserFile.saveLastFile(currentFile);
-                } catch (RuntimeException e) {
-                    new Alert(Alert.AlertType.ERROR, "Error saving file").showAndWait();
+                    UserFile.saveLastFile(service.getFile());
+                } catch (IOException e) {
+                    showError("Issue saving previous file");
                 }
             });
         });
     }
 
-    private void attachCompletionListener(Task task) {
-        task.completedProperty().addListener(
-                (obs, oldValue, newValue) -> {
-                    if (!undoManager.isPerforming()) {
-                        undoManager.push(new Action(
-                                () -> task.completedProperty().set(oldValue),
-                                () -> task.completedProperty().set(newValue)
-                        ));
-                    }
-                    save();
+    /**
+     * Sets up the columns and rows of a task table, shared with the scrolling harness
+     * Cells show each task's cached display property and rows style
+     * themselves through pseudo-classes, so a change to a task redraws only
+     * the row showing it and scrolling builds no strings or bindings
+     * @param table to set up
+     * @param doneCol checkbox column
+     * @param taskCol description and date column
+     * @param dueStatus where a task's due date stands
+     * @param onOpen called with a double-clicked task
+     */
+    static void setUpTable(TableView<Task> table, TableColumn<Task, Boolean> doneCol,
+                           TableColumn<Task, String> taskCol, Function<Task, DueReminders.Status> dueStatus,
+                           Consumer<Task> onOpen) {
+        // Checkbox column, a click changes the store inside the list's completion writes
+        doneCol.setCellValueFactory(cell -> cell.getValue().completedProperty());
+        doneCol.setCellFactory(CheckBoxTableCell.forTableColumn(doneCol));
+
+        // Task text column, grayed out for completed rows by Todolist.css
+        taskCol.setCellValueFactory(cell -> cell.getValue().displayProperty());
+        taskCol.getStyleClass().add("task-text");
+
+        // Style completed, overdue and due today tasks, and listen for a double click on a task to edit it
+        table.setRowFactory(tv -> {
+            TableRow<Task> row = new TaskRow(dueStatus);
+            row.setOnMouseClicked(event -> {
+                if (!row.isEmpty() && event.getClickCount() == 2) {
+                    onOpen.accept(row.getItem());
+                }
+            });
+            return row;
+        });
+    }
+
+    /**
+     * Startup work that waits for the window to be on screen: opens the
+     * last file, then builds the edit window while that file streams in
+     * Marks the app interactive once both are done
+     */
+    public void afterFirstFrame() {
+        CompletableFuture<Integer> lastLoad = CompletableFuture.completedFuture(0);
+        try {
+            File lastFile = UserFile.loadLastFile();
+            if (lastFile != null) {
+                lastLoad = openFile(lastFile);
+            }
+        } catch (IOException e) {
+            showError("File not found, list couldn't be retrieved");
+        }
+        CompletableFuture<Integer> loaded = lastLoad;
+        Platform.runLater(() -> {
+            try {
+                editor();
+            } catch (IOException e) {
+                // Tried again, and reported, when a task is opened
+            }
+            loaded.whenComplete((skipped, error) -> StartupTimer.interactive());
         });
     }
 
     @FXML
     private void undo() {
-        undoManager.undo();
+        service.undo();
         refresh();
     }
 
     @FXML
     private void redo() {
-        undoManager.redo();
+        service.redo();
         refresh();
     }
 
     @FXML
-    private void clearChecked() {
-        ObservableList<Task> removedTasks = FXCollections.observableArrayList(
-                tasks.filtered(task -> task.completedProperty().get())
-        );
-        if (!removedTasks.isEmpty()) {
-            // Backup all checked items
-            undoManager.push(new Action(
-                    () -> tasks.addAll(removedTasks),
-                    () -> tasks.removeAll(removedTasks)
-            ));
-            // Clear checked tasks
-            tasks.removeAll(removedTasks);
-            save();
+    private void search() {
+        try {
+            query = TaskQuery.parse(search.getText());
+        } catch (IllegalArgumentException e) {
+            showError(e.getMessage());
+            return;
         }
+        showResults();
+    }
+
+    /**
+     * Shows the tasks matching the search box, or every task if it's empty
+     */
+    private void showResults() {
+        if (query == null || query.isEmpty()) {
+            if (tableView.getItems() != tasks) {
+                tableView.setItems(tasks);
+            }
+        } else {
+            tableView.setItems(FXCollections.observableList(service.search(query)));
+        }
+    }
+
+    @FXML
+    private void clearChecked() {
+        service.clearCompleted();
     }
 
     @FXML
     private void clearList() {
-        if (!tasks.isEmpty()) {
-            // Backup the entire list
-            ObservableList<Task> removedTasks = FXCollections.observableArrayList(tasks);
-            undoManager.push(new Action(
-                    () -> tasks.addAll(removedTasks),
-                    () -> tasks.removeAll(removedTasks)
-            ));
-
-            // Clear list
-            tasks.clear();
-            save();
-        }
+        service.clearAll();
     }
 
     @FXML
     private void add() {
         if (date.getValue() != null) {
-            Task newTask = new Task(taskDescription.getText(), date.getValue());
-            // Backup unadding task
-            undoManager.push(new Action(
-                    () -> tasks.remove(newTask),
-                    () -> tasks.add(newTask)
-            ));
-            // Add task
-            tasks.add(newTask);
-            refresh();
+            service.add(taskDescription.getText(), date.getValue());
         } else {
-            new Alert(Alert.AlertType.ERROR, "Must have a date").showAndWait();
+            showError("Must have a date");
         }
     }
 
@@ -222,10 +245,9 @@ public class Controller implements Initializable {
 
     @FXML
     private void close() {
-        currentFile = null;
+        closeEditor();
+        service.close();
         currentFileDisplay.clear();
-        tasks.clear();
-        undoManager.clear();
     }
 
     @FXML
@@ -237,102 +259,278 @@ public class Controller implements Initializable {
         }
     }
 
+    /**
+     * Fills the Switch List menu with the lists kept in memory, most recent first
+     */
+    @FXML
+    private void showOpenLists() {
+        openLists.getItems().clear();
+        for (File file : service.getWorkspace().getFiles()) {
+            MenuItem item = new MenuItem(file.getName());
+            item.setOnAction(event -> openFile(file));
+            openLists.getItems().add(item);
+        }
+        openLists.setDisable(openLists.getItems().isEmpty());
+    }
+
     @FXML
     private void saveAs() {
         File file = createTextFileChooser("Save Task File")
                 .showSaveDialog(tableView.getScene().getWindow());
         if (file != null) {
-            currentFile = file;
+            service.saveAs(file);
             currentFileDisplay.setText(file.getName());
-            save();
+            journalMode.setSelected(service.isJournaling());
         }
     }
 
+    @FXML
+    private void toggleJournal() {
+        service.setJournaling(journalMode.isSelected());
+        journalMode.setSelected(service.isJournaling());
+    }
+
     @FXML
     private void commands() {
 
     }
 
     /**
-     * Get file chooser for text files only
+     * Get file chooser for text and binary task files
      * @param title of file action
-     * @return chooser for text files
+     * @return chooser for task files
      */
     private FileChooser createTextFileChooser(String title) {
         FileChooser chooser = new FileChooser();
         chooser.setTitle(title);
-        chooser.getExtensionFilters().add(
-                new FileChooser.ExtensionFilter("Text Files", "*.txt")
+        chooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Text Files", "*.txt"),
+                new FileChooser.ExtensionFilter("Binary Task Files", "*" + BinaryTaskFile.EXTENSION)
         );
         return chooser;
     }
 
     /**
-     * Opens a txt file to table view
+     * Opens a task file to table view in the background
+     * The table fills in as the file is read, and skipped lines are
+     * reported once, after the whole file is in
      * @param file to open
+     * @return completes on the JavaFX thread once the whole file is in
      */
-    private void openFile(File file) {
-        tasks.clear();
-        try {
-            tasks.addAll(FileUtilities.load(file));
-            currentFile = file;
-            currentFileDisplay.setText(file.getName());
-        } catch (IOException e) {
-            new Alert(Alert.AlertType.ERROR, e.getMessage()).showAndWait();
+    private CompletableFuture<Integer> openFile(File file) {
+        closeEditor();
+        currentFileDisplay.setText(file.getName());
+        loadProgress.setProgress(0);
+        showLoading(true);
+        FileLoad load = service.openAsync(file, Platform::runLater, loadProgress::setProgress);
+        loading = load;
+        load.getResult().whenComplete((skipped, error) -> {
+            if (loading != load) {
+                return;
+            }
+            loading = null;
+            showLoading(false);
+            journalMode.setSelected(service.isJournaling());
+            if (error != null) {
+                currentFileDisplay.clear();
+                if (!(error instanceof CancellationException)) {
+                    showError(error.getMessage());
+                }
+            } else if (skipped == 1) {
+                showError("Parsing issue, " + skipped + " task skipped");
+            } else if (skipped > 1) {
+                showError("Parsing issue, " + skipped + " tasks skipped");
+            }
+        });
+        return load.getResult();
+    }
+
+    @FXML
+    private void cancelLoad() {
+        if (loading != null) {
+            loading.cancel();
         }
     }
 
     /**
-     * Refresh table view
+     * Shows or hides the progress bar of a file being opened
+     * @param shown true while a file is loading
+     */
+    private void showLoading(boolean shown) {
+        loadingBar.setVisible(shown);
+        loadingBar.setManaged(shown);
+    }
+
+    /**
+     * Asks what to keep when the open file was changed by another program
+     * while the list has edits that aren't saved yet
+     * @param file changed on disk
      */
-    private void save() {
-        if (currentFile != null) {
-            save(currentFile);
+    private void resolveConflict(File file) {
+        ButtonType reload = new ButtonType("Reload From Disk");
+        ButtonType keep = new ButtonType("Keep My Edits");
+        Alert alert = new Alert(Alert.AlertType.WARNING,
+                file.getName() + " was changed by another program while you had unsaved edits", reload, keep);
+        alert.setHeaderText("File changed on disk");
+        if (alert.showAndWait().orElse(keep) == reload) {
+            service.reloadFromDisk();
+        } else {
+            service.keepLocal();
         }
+        refresh();
     }
 
     /**
-     * Saves list
-     * @param file to save
+     * Notifies about tasks due today or earlier, when a list is opened or the day rolls over
+     * @param summary counts for today
      */
-    private void save(File file) {
-        try {
-            FileUtilities.save(file, tasks);
-        } catch (IOException e) {
-            new Alert(Alert.AlertType.ERROR, "Failed to save tasks").showAndWait();
+    private void remind(DueReminders.Summary summary) {
+        showCounts();
+        if (summary.isNewDay()) {
+            // Every row's due status moves with the day, once a day
+            tableView.refresh();
+        }
+        if (summary.getOverdue() > 0 || summary.getDueToday() > 0) {
+            Alert alert = new Alert(Alert.AlertType.INFORMATION, dueText(summary));
+            alert.setHeaderText(summary.isNewDay() ? "New day" : "Tasks due");
+            alert.show();
+        }
+    }
+
+    /**
+     * Shows the overdue, due today and statistics counts under the task form
+     * Every count is kept as the list changes, so this reads a few numbers
+     */
+    private void showCounts() {
+        DueReminders.Summary summary = service.dueSummary();
+        dueSummary.setText(summary.getOverdue() > 0 || summary.getDueToday() > 0 ? dueText(summary) : "");
+        statsSummary.setText(service.read(() -> {
+            TaskStats stats = service.getStats();
+            return String.format("%,d tasks, %,d done, %,d overdue, %,d due this week", stats.getTotal(),
+                    stats.getCompleted(), stats.getOverdue(), stats.getDueThisWeek());
+        }));
+    }
+
+    /**
+     * Shows the open and done tasks per day, from a week back to four weeks ahead
+     */
+    @FXML
+    private void showStatistics() {
+        int[][] counts = new int[2][];
+        int[] from = new int[1];
+        service.read(() -> {
+            TaskStats stats = service.getStats();
+            from[0] = stats.getToday() - TaskStats.WEEK_DAYS;
+            int to = stats.getToday() + 4 * TaskStats.WEEK_DAYS;
+            counts[0] = stats.histogram(from[0], to, true);
+            counts[1] = stats.histogram(from[0], to, false);
+            return null;
+        });
+        XYChart.Series<String, Number> open = new XYChart.Series<>();
+        open.setName("Open");
+        XYChart.Series<String, Number> done = new XYChart.Series<>();
+        done.setName("Done");
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("MMM d");
+        for (int i = 0; i < counts[0].length; i++) {
+            String day = LocalDate.ofEpochDay(from[0] + i).format(format);
+            open.getData().add(new XYChart.Data<>(day, counts[0][i]));
+            done.getData().add(new XYChart.Data<>(day, counts[1][i] - counts[0][i]));
+        }
+        StackedBarChart<String, Number> chart = new StackedBarChart<>(new CategoryAxis(), new NumberAxis());
+        chart.getData().add(open);
+        chart.getData().add(done);
+        chart.setAnimated(false);
+        chart.setPrefSize(720, 360);
+
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle("Statistics");
+        alert.setHeaderText(statsSummary.getText());
+        alert.getDialogPane().setContent(chart);
+        alert.setResizable(true);
+        alert.show();
+    }
+
+    private static String dueText(DueReminders.Summary summary) {
+        return summary.getOverdue() + " overdue, " + summary.getDueToday() + " due today";
+    }
+
+    /**
+     * Shows an error dialog
+     * @param message to show
+     */
+    private void showError(String message) {
+        new Alert(Alert.AlertType.ERROR, message).showAndWait();
+    }
+
+    /**
+     * Runs UI work on the JavaFX thread, right away if already on it
+     * @param work to run
+     */
+    private static void onFxThread(Runnable work) {
+        if (Platform.isFxApplicationThread()) {
+            work.run();
+        } else {
+            Platform.runLater(work);
         }
     }
 
     /**
      * Opens the window for a task
+     * The one edit window is reused, opening another task while it's up
+     * switches it to that task
      * @param task to open
      */
     private void openTask(Task task) {
         try {
+            Stage stage = editor();
+            editController.setTask(task);
+            stage.setTitle(task.toString());
+            stage.show();
+            stage.toFront();
+        } catch (IOException e) {
+            showError("Error opening task");
+        }
+    }
+
+    /**
+     * Get the edit window, parsing EditTask.fxml the first time only
+     * @return window for editing a task
+     */
+    private Stage editor() throws IOException {
+        if (editStage == null) {
             FXMLLoader loader = new FXMLLoader(getClass().getResource("/EditTask.fxml"));
             Parent root = loader.load();
-            TaskController controller = loader.getController();
-            controller.setTask(task);
-            controller.setTasks(tasks);
-            controller.setUndoManager(undoManager);
+            editController = loader.getController();
+            editController.setService(service);
 
             Stage stage = new Stage();
-            stage.setTitle(task.toString());
             stage.setScene(new Scene(root, 300, 200));
-            controller.setStage(stage);
+            editController.setStage(stage);
 
             stage.setOnHidden(e -> refresh());
+            editStage = stage;
+        }
+        return editStage;
+    }
 
-            stage.show();
-
-        } catch (IOException e) {
-            new Alert(Alert.AlertType.ERROR, "Error opening task").showAndWait();
+    /**
+     * Closes the edit window, if it's up, before the list it edits is replaced
+     */
+    private void closeEditor() {
+        if (editStage != null) {
+            editStage.close();
         }
     }
 
+    /**
+     * Catches the search results and counts up after edits, undo or a reload
+     * Rows redraw themselves as their tasks change, and the list is kept
+     * sorted as it changes, so no row is rebuilt or re-sorted here
+     */
     private void refresh() {
-        FXCollections.sort(tasks, taskComparator);
-        tableView.refresh();
-        save();
+        long start = System.nanoTime();
+        showResults();
+        showCounts();
+        REFRESH_TIME.recordSince(start);
     }
 }
\ No newline at end of file
@@ -0,0 +1,289 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Open tasks bucketed by due date, for overdue and due today reminders
+ * Every unchecked row in the list sits in the bucket of its epoch day, a
+ * linked list threaded through two int arrays indexed by row id, so a
+ * task is moved between buckets in constant time when it's checked,
+ * unchecked, re-dated, added or removed. Overdue and due today counts are
+ * kept as rows move, and when the day rolls over only the buckets of the
+ * days that passed are looked at, never the whole list
+ */
+public class DueReminders {
+
+    /**
+     * Where an open task's due date stands
+     */
+    public enum Status {
+        NONE, DUE_TODAY, OVERDUE
+    }
+
+    /**
+     * Counts of open tasks due at a point in time
+     */
+    public static final class Summary {
+        private final int today;
+        private final int overdue;
+        private final int dueToday;
+        private final boolean newDay;
+
+        private Summary(int today, int overdue, int dueToday, boolean newDay) {
+            this.today = today;
+            this.overdue = overdue;
+            this.dueToday = dueToday;
+            this.newDay = newDay;
+        }
+
+        /**
+         * @return today as an epoch day
+         */
+        public int getToday() {
+            return today;
+        }
+
+        /**
+         * @return open tasks due before today
+         */
+        public int getOverdue() {
+            return overdue;
+        }
+
+        /**
+         * @return open tasks due today
+         */
+        public int getDueToday() {
+            return dueToday;
+        }
+
+        /**
+         * @return true if the day just rolled over, false for a list just opened
+         */
+        public boolean isNewDay() {
+            return newDay;
+        }
+    }
+
+    /**
+     * Open rows due on one day
+     */
+    private static final class Bucket {
+        private int head = END;
+        private int size;
+    }
+
+    private static final int END = -1;
+
+    // Bucket links, indexed by row id; a row outside every bucket has day UNTRACKED
+    private static final int UNTRACKED = Integer.MIN_VALUE;
+    private int[] next = new int[0];
+    private int[] prev = new int[0];
+    private int[] day = new int[0];
+
+    private final Map<Integer, Bucket> buckets = new HashMap<>();
+    private TaskStore store;
+    private int today;
+    private int overdue;
+    private int dueToday;
+
+    /**
+     * 2-param constructor
+     * @param store whose list is tracked
+     * @param today epoch day to count from
+     */
+    public DueReminders(TaskStore store, int today) {
+        this.today = today;
+        reset(store);
+    }
+
+    /**
+     * Get the store whose list is tracked
+     * @return store
+     */
+    public TaskStore getStore() {
+        return store;
+    }
+
+    /**
+     * Tracks the list of a store, dropping what was tracked before
+     * Reads every row once, for when a list is swapped in
+     * @param store whose list is tracked from now on
+     */
+    public void reset(TaskStore store) {
+        this.store = store;
+        buckets.clear();
+        Arrays.fill(day, UNTRACKED);
+        overdue = 0;
+        dueToday = 0;
+        for (int i = 0; i < store.size(); i++) {
+            update(store.idAt(i));
+        }
+    }
+
+    /**
+     * Moves a row to the bucket of its date, or out of them all if it's
+     * checked or no longer in the list
+     * Called after each add, remove, check or date change of the row
+     * @param id of the row
+     */
+    public void update(int id) {
+        ensureCapacity(id + 1);
+        if (day[id] != UNTRACKED) {
+            unlink(id);
+        }
+        if (store.isLive(id) && !store.isCompleted(id)) {
+            link(id, store.epochDay(id));
+        }
+    }
+
+    /**
+     * Moves the clock to a new day
+     * Only the buckets between the old and the new day are counted, or
+     * every bucket if there are fewer of those, e.g. after a long sleep
+     * @param epochDay today
+     * @return summary for the new day, or null if the day didn't change
+     */
+    public Summary advanceTo(int epochDay) {
+        if (epochDay == today) {
+            return null;
+        }
+        int low = Math.min(today, epochDay);
+        int high = Math.max(today, epochDay);
+        int passed = 0;
+        if ((long) high - low <= buckets.size()) {
+            for (int d = low; d < high; d++) {
+                passed += sizeOf(d);
+            }
+        } else {
+            for (Map.Entry<Integer, Bucket> entry : buckets.entrySet()) {
+                int d = entry.getKey();
+                if (d >= low && d < high) {
+                    passed += entry.getValue().size;
+                }
+            }
+        }
+        // Moving forward the days passed become overdue, moving back they stop being
+        overdue += epochDay > today ? passed : -passed;
+        today = epochDay;
+        dueToday = sizeOf(today);
+        return new Summary(today, overdue, dueToday, true);
+    }
+
+    /**
+     * Get the counts as they are now
+     * @return summary for today
+     */
+    public Summary summary() {
+        return new Summary(today, overdue, dueToday, false);
+    }
+
+    /**
+     * Get where a row's due date stands
+     * Read from the row itself, so it's right even while an edit is still
+     * on its way to update
+     * @param id of the row
+     * @return NONE for checked, future or removed rows
+     */
+    public Status status(int id) {
+        if (!store.isLive(id) || store.isCompleted(id)) {
+            return Status.NONE;
+        }
+        int epochDay = store.epochDay(id);
+        return epochDay < today ? Status.OVERDUE : epochDay == today ? Status.DUE_TODAY : Status.NONE;
+    }
+
+    /**
+     * Get the open rows due on a day
+     * @param epochDay due date
+     * @return row ids, most recently tracked first
+     */
+    public int[] dueOn(int epochDay) {
+        Bucket bucket = buckets.get(epochDay);
+        if (bucket == null) {
+            return new int[0];
+        }
+        int[] ids = new int[bucket.size];
+        int i = 0;
+        for (int id = bucket.head; id != END; id = next[id]) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * @return today as an epoch day
+     */
+    public int getToday() {
+        return today;
+    }
+
+    /**
+     * @return open tasks due before today
+     */
+    public int getOverdue() {
+        return overdue;
+    }
+
+    /**
+     * @return open tasks due today
+     */
+    public int getDueToday() {
+        return dueToday;
+    }
+
+    private void link(int id, int epochDay) {
+        Bucket bucket = buckets.computeIfAbsent(epochDay, d -> new Bucket());
+        next[id] = bucket.head;
+        prev[id] = END;
+        if (bucket.head != END) {
+            prev[bucket.head] = id;
+        }
+        bucket.head = id;
+        bucket.size++;
+        day[id] = epochDay;
+        count(epochDay, 1);
+    }
+
+    private void unlink(int id) {
+        int epochDay = day[id];
+        Bucket bucket = buckets.get(epochDay);
+        if (prev[id] != END) {
+            next[prev[id]] = next[id];
+        } else {
+            bucket.head = next[id];
+        }
+        if (next[id] != END) {
+            prev[next[id]] = prev[id];
+        }
+        if (--bucket.size == 0) {
+            buckets.remove(epochDay);
+        }
+        day[id] = UNTRACKED;
+        count(epochDay, -1);
+    }
+
+    private void count(int epochDay, int delta) {
+        if (epochDay < today) {
+            overdue += delta;
+        } else if (epochDay == today) {
+            dueToday += delta;
+        }
+    }
+
+    private int sizeOf(int epochDay) {
+        Bucket bucket = buckets.get(epochDay);
+        return bucket == null ? 0 : bucket.size;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > day.length) {
+            int grown = Math.max(capacity, Math.max(16, day.length * 2));
+            int old = day.length;
+            next = Arrays.copyOf(next, grown);
+            prev = Arrays.copyOf(prev, grown);
+            day = Arrays.copyOf(day, grown);
+            Arrays.fill(day, old, grown, UNTRACKED);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts and merges task files that don't fit in the heap
+ * Sorting parses lines into a store until it holds about runBytes, sorts
+ * it and spills it to a temp file as a run, then merges the runs. Merging
+ * reads every input a small chunk of lines at a time and picks the next
+ * line off a heap, so it takes MERGE_CHUNK_BYTES per input whatever their
+ * size; more than MAX_FAN_IN inputs are merged in several passes.
+ * Output is sorted by due date, then description, like the app's list
+ */
+public class ExternalSort {
+
+    public static final long DEFAULT_RUN_BYTES = 64L << 20;
+    public static final int MAX_FAN_IN = 64;
+    public static final int MERGE_CHUNK_BYTES = 64 << 10;
+
+    /**
+     * Lines read and written by a sort or merge
+     */
+    public static final class Stats {
+        private long read;
+        private long written;
+        private int skipped;
+        private int runs;
+
+        /**
+         * @return lines read from the inputs
+         */
+        public long getRead() {
+            return read;
+        }
+
+        /**
+         * @return lines written to the output
+         */
+        public long getWritten() {
+            return written;
+        }
+
+        /**
+         * @return lines that couldn't be parsed, they are dropped
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * @return runs spilled to temp files
+         */
+        public int getRuns() {
+            return runs;
+        }
+    }
+
+    private ExternalSort() {
+    }
+
+    /**
+     * Sorts task files into one file
+     * @param inputs text task files, in any order
+     * @param out file to write, may be one of the inputs
+     * @param runBytes about how much heap a run may take while it's sorted
+     * @return counts of the sort
+     * @throws IOException if issue with any file
+     */
+    public static Stats sort(List<File> inputs, File out, long runBytes) throws IOException {
+        Stats stats = new Stats();
+        List<File> runs = new ArrayList<>();
+        Path folder = out.toPath().toAbsolutePath().getParent();
+        try {
+            TaskStore[] run = {new TaskStore()};
+            for (File input : inputs) {
+                try (FileChannel channel = FileChannel.open(input.toPath(), StandardOpenOption.READ)) {
+                    stats.skipped += TaskParser.parse(channel, (buf, start, end, epochDay, completed) -> {
+                        run[0].add(buf, start, end, epochDay, completed);
+                        stats.read++;
+                        if (run[0].estimatedBytes() >= runBytes) {
+                            try {
+                                runs.add(spill(run[0], folder));
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                            run[0] = new TaskStore();
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+            if (run[0].size() > 0 || runs.isEmpty()) {
+                runs.add(spill(run[0], folder));
+            }
+            run[0] = null;
+            stats.runs = runs.size();
+            stats.written = mergeRuns(runs, out, false, folder, null);
+            return stats;
+        } finally {
+            for (File file : runs) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * Merges task files that are each already sorted into one sorted file
+     * @param inputs sorted text task files
+     * @param out file to write, may be one of the inputs
+     * @param dedupe true to write tasks with the same date, description and completion once
+     * @return counts of the merge
+     * @throws IOException if issue with any file
+     */
+    public static Stats merge(List<File> inputs, File out, boolean dedupe) throws IOException {
+        Stats stats = new Stats();
+        stats.written = mergeRuns(inputs, out, dedupe, out.toPath().toAbsolutePath().getParent(), stats);
+        return stats;
+    }
+
+    /**
+     * Sorts a run and writes it to a temp file
+     */
+    private static File spill(TaskStore run, Path folder) throws IOException {
+        run.sort();
+        File file = Files.createTempFile(folder, "run", ".tmp").toFile();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+             TaskWriter writer = new TaskWriter(channel)) {
+            for (int i = 0; i < run.size(); i++) {
+                writer.write(run, run.idAt(i));
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e.getCause();
+        }
+        return file;
+    }
+
+    /**
+     * Merges sorted files into out, in passes of at most MAX_FAN_IN files
+     * Intermediate files are deleted, the inputs are left alone
+     * @param inputStats counts the lines read from the inputs, may be null
+     * @return lines written to out
+     */
+    private static long mergeRuns(List<File> files, File out, boolean dedupe, Path folder,
+                                  Stats inputStats) throws IOException {
+        List<File> passOutputs = new ArrayList<>();
+        Stats counting = inputStats;
+        try {
+            while (files.size() > MAX_FAN_IN) {
+                List<File> next = new ArrayList<>();
+                for (int from = 0; from < files.size(); from += MAX_FAN_IN) {
+                    File merged = Files.createTempFile(folder, "run", ".tmp").toFile();
+                    passOutputs.add(merged);
+                    mergeInto(files.subList(from, Math.min(files.size(), from + MAX_FAN_IN)), merged, dedupe,
+                            counting);
+                    next.add(merged);
+                }
+                files = next;
+                counting = null;
+            }
+            return mergeInto(files, out, dedupe, counting);
+        } finally {
+            for (File file : passOutputs) {
+                Files.deleteIfExists(file.toPath());
+            }
+        }
+    }
+
+    /**
+     * One k-way merge pass, written next to out then moved over it
+     * @param counting counts the lines read, may be null
+     * @return lines written
+     */
+    private static long mergeInto(List<File> files, File out, boolean dedupe, Stats counting) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        long[] written = new long[1];
+        try {
+            PriorityQueue<Source> heap = new PriorityQueue<>(Math.max(1, files.size()), Source::compareTo);
+            for (File file : files) {
+                Source source = new Source(file);
+                sources.add(source);
+                if (source.advance()) {
+                    heap.add(source);
+                }
+            }
+            FileUtilities.writeReplacing(out, channel -> {
+                try (TaskWriter writer = new TaskWriter(channel)) {
+                    // Last written row, to spot duplicates; its chunk stays alive until the next write
+                    TaskStore lastStore = null;
+                    int lastId = -1;
+                    boolean openWritten = false;
+                    boolean doneWritten = false;
+                    while (!heap.isEmpty()) {
+                        Source source = heap.poll();
+                        TaskStore store = source.chunk;
+                        int id = source.id();
+                        boolean write = true;
+                        if (dedupe) {
+                            // Runs are sorted by date and description only, so a group of equal
+                            // lines can alternate completions; track both within the group
+                            if (lastStore == null || TaskStore.compare(lastStore, lastId, store, id) != 0) {
+                                openWritten = false;
+                                doneWritten = false;
+                            }
+                            boolean completed = store.isCompleted(id);
+                            write = completed ? !doneWritten : !openWritten;
+                            if (completed) {
+                                doneWritten = true;
+                            } else {
+                                openWritten = true;
+                            }
+                            lastStore = store;
+                            lastId = id;
+                        }
+                        if (write) {
+                            writer.write(store, id);
+                            written[0]++;
+                        }
+                        if (source.advance()) {
+                            heap.add(source);
+                        }
+                    }
+                }
+                // Inputs are closed before the move, one of them may be out itself
+                for (Source source : sources) {
+                    if (counting != null) {
+                        counting.read += source.lines;
+                        counting.skipped += source.skipped;
+                    }
+                    source.close();
+                }
+                sources.clear();
+            });
+            return written[0];
+        } finally {
+            for (Source source : sources) {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * A sorted file read a chunk of lines at a time
+     */
+    private static final class Source implements Closeable {
+        private final FileChannel channel;
+        private final long length;
+        private final ByteBuffer scratch = ByteBuffer.allocate(4096);
+        private long position;
+        private TaskStore chunk = new TaskStore();
+        private int next = -1;
+        private long lines;
+        private int skipped;
+
+        private Source(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+            length = channel.size();
+        }
+
+        /**
+         * Moves to the next line, reading another chunk when this one is used up
+         * @return false once the file is done
+         */
+        private boolean advance() throws IOException {
+            next++;
+            while (next >= chunk.size()) {
+                if (position >= length) {
+                    return false;
+                }
+                long end = TaskParser.nextLineStart(channel, Math.min(length, position + MERGE_CHUNK_BYTES),
+                        length, scratch);
+                TaskStore read = new TaskStore();
+                skipped += TaskParser.parse(channel, position, end, read::add);
+                chunk = read;
+                next = 0;
+                position = end;
+            }
+            lines++;
+            return true;
+        }
+
+        private int id() {
+            return chunk.idAt(next);
+        }
+
+        private int compareTo(Source other) {
+            return TaskStore.compare(chunk, id(), other.chunk, other.id());
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
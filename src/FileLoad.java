@@ -0,0 +1,223 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+
+/**
+ * A task file being opened in the background
+ * Tasks are parsed on a worker thread into small staging stores, each handed
+ * to the apply executor (Platform.runLater for the UI) to be merged into the
+ * list, so the first screen of tasks shows up long before the file is read.
+ * Batches start small and double, so the first one arrives right away and a
+ * big file still only takes a few dozen merges
+ */
+public class FileLoad {
+
+    public static final int FIRST_BATCH = 256;
+    public static final int MAX_BATCH = 1 << 14;
+
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("load.async");
+    private static final Metrics.Counter LOAD_BYTES = Metrics.counter("load.bytes");
+
+    private final File file;
+    private final Executor apply;
+    private final Consumer<TaskStore> onBatch;
+    private final DoubleConsumer onProgress;
+    private final BiConsumer<Integer, Throwable> onFinish;
+    private final CompletableFuture<Integer> result = new CompletableFuture<>();
+    private volatile boolean cancelled = false;
+
+    /**
+     * 5-param constructor, start() begins reading
+     * @param file to read
+     * @param apply executor every batch, progress update and the result are delivered on
+     * @param onBatch merges a staging store of parsed tasks into the list
+     * @param onProgress given the share of the file read so far, 0 to 1
+     * @param onFinish given the skipped line count or the failure, just before the result completes
+     */
+    FileLoad(File file, Executor apply, Consumer<TaskStore> onBatch, DoubleConsumer onProgress,
+             BiConsumer<Integer, Throwable> onFinish) {
+        this.file = file;
+        this.apply = apply;
+        this.onBatch = onBatch;
+        this.onProgress = onProgress;
+        this.onFinish = onFinish;
+    }
+
+    /**
+     * Get a load that has nothing left to read, for a list already in memory
+     * @param file the list belongs to
+     * @param apply executor the result is completed on
+     * @return load completing with no skipped lines
+     */
+    static FileLoad loaded(File file, Executor apply) {
+        FileLoad load = new FileLoad(file, apply, batch -> { }, progress -> { }, (skipped, error) -> { });
+        apply.execute(() -> load.finish(0, null));
+        return load;
+    }
+
+    /**
+     * Starts reading on a new daemon thread
+     */
+    void start() {
+        Thread thread = new Thread(this::read, "task-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops reading, the result then completes with a CancellationException
+     * Batches already handed over stay in the list until the load is cleaned up
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Check if the load was cancelled
+     * @return true once cancel() was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Get the outcome of the load, completed on the apply executor
+     * @return number of lines skipped because they couldn't be parsed
+     */
+    public CompletableFuture<Integer> getResult() {
+        return result;
+    }
+
+    /**
+     * Get the file being read
+     * @return file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Reads the whole file, handing over batches as they fill
+     */
+    private void read() {
+        long start = System.nanoTime();
+        boolean journaled = TaskJournal.exists(file);
+        int skipped;
+        try {
+            if (journaled) {
+                // The journal edits rows anywhere in the file, so it's replayed over the whole of it
+                TaskStore whole = new TaskStore();
+                skipped = FileUtilities.load(file, whole);
+                checkCancelled();
+                deliver(whole, 1);
+            } else if (BinaryTaskFile.isBinary(file)) {
+                skipped = 0;
+                readBinary();
+            } else {
+                skipped = readText();
+            }
+        } catch (IOException | RuntimeException e) {
+            Throwable error = cancelled ? new CancellationException() : e;
+            apply.execute(() -> finish(null, error));
+            return;
+        }
+        if (!cancelled) {
+            LOAD_TIME.recordSince(start);
+            if (!journaled) {
+                // FileUtilities.load already counted the bytes it read
+                LOAD_BYTES.add(file.length());
+            }
+        }
+        int errors = skipped;
+        apply.execute(() -> finish(errors, cancelled ? new CancellationException() : null));
+    }
+
+    /**
+     * Reports the outcome, on the apply executor after every batch
+     */
+    private void finish(Integer skipped, Throwable error) {
+        onFinish.accept(skipped, error);
+        if (error == null) {
+            result.complete(skipped);
+        } else {
+            result.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Parses a text file, cutting a batch off every time one fills
+     * @return number of lines skipped
+     */
+    private int readText() throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = Math.max(1, channel.size());
+            TaskStore[] batch = {new TaskStore()};
+            int[] batchSize = {FIRST_BATCH};
+            int skipped = TaskParser.parse(channel, (buf, start, end, epochDay, completed) -> {
+                TaskStore current = batch[0];
+                current.add(buf, start, end, epochDay, completed);
+                if (current.size() == batchSize[0]) {
+                    checkCancelled();
+                    deliver(current, position(channel) / (double) length);
+                    batch[0] = new TaskStore();
+                    batchSize[0] = Math.min(MAX_BATCH, batchSize[0] * 2);
+                }
+            });
+            checkCancelled();
+            deliver(batch[0], 1);
+            return skipped;
+        }
+    }
+
+    /**
+     * Copies a binary file's tasks out in batches
+     */
+    private void readBinary() throws IOException {
+        try (BinaryTaskFile binary = new BinaryTaskFile(file)) {
+            int batchSize = FIRST_BATCH;
+            for (int from = 0; from < binary.size(); from += batchSize, batchSize = Math.min(MAX_BATCH, batchSize * 2)) {
+                checkCancelled();
+                int to = Math.min(binary.size(), from + batchSize);
+                TaskStore batch = new TaskStore();
+                binary.readInto(batch, from, to);
+                deliver(batch, to / (double) binary.size());
+            }
+            deliver(new TaskStore(), 1);
+        }
+    }
+
+    /**
+     * Sorts a batch here, so merging it into the list is cheap, then hands
+     * it and the progress so far to the apply executor
+     */
+    private void deliver(TaskStore batch, double progress) {
+        batch.sort();
+        apply.execute(() -> {
+            if (!cancelled) {
+                onBatch.accept(batch);
+                onProgress.accept(progress);
+            }
+        });
+    }
+
+    private void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+    }
+
+    private static long position(FileChannel channel) {
+        try {
+            return channel.position();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -1,68 +1,151 @@
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.scene.control.Alert;
-
 import java.io.*;
-import java.time.LocalDate;
-import java.util.Scanner;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Static methods for loading and saving files of tasks
  */
 public class FileUtilities {
 
+    private static final Metrics.Histogram LOAD_TIME = Metrics.histogram("load");
+    private static final Metrics.Counter LOAD_BYTES = Metrics.counter("load.bytes");
+    private static final Metrics.Histogram SAVE_TIME = Metrics.histogram("save");
+    private static final Metrics.Counter SAVE_BYTES = Metrics.counter("save.bytes");
+    private static final int MAX_SYMLINKS = 40;
+
+    /**
+     * Body of a replacing write, given the temp file's channel
+     */
+    interface ChannelWrite {
+        void write(FileChannel channel) throws IOException;
+    }
+
     /**
      * Loads a set of tasks by parsing its description, date, and completion
+     * Lines that can't be parsed are skipped, use load(File, TaskStore) to count them
      * @param file to load
      * @return tasks loaded from the file
      * @throws IOException if issue with file to load
      */
-    public static ObservableList<Task> load(File file) throws IOException {
-        ObservableList<Task> tasks = FXCollections.observableArrayList();
-        try (Scanner scanner = new Scanner(file)) {
-            int errors = 0;
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                if (!line.isBlank()) {
-                    String[] parts = line.split(" - ", 3);
-                    if (parts.length == 3) {
-                        try {
-                            String taskText = parts[0].trim();
-                            LocalDate taskDate = LocalDate.parse(parts[1].trim());
-                            boolean completed = Boolean.parseBoolean(parts[2].trim());
-                            Task task = new Task(taskText, taskDate);
-                            task.completedProperty().set(completed);
-                            tasks.add(task);
-                        } catch (Exception e) {
-                            errors++;
-                        }
-                    } else {
-                        errors++;
-                    }
-                }
-            }
-            if (errors == 1) {
-                new Alert(Alert.AlertType.ERROR, "Parsing issue, " + errors + " task skipped").showAndWait();
-            } else if (errors > 1) {
-                new Alert(Alert.AlertType.ERROR, "Parsing issue, " + errors + " tasks skipped").showAndWait();
+    public static TaskStore load(File file) throws IOException {
+        TaskStore tasks = new TaskStore();
+        load(file, tasks);
+        return tasks;
+    }
+
+    /**
+     * Loads a set of tasks into a store by parsing its description, date, and completion
+     * Copies every row out of a .tbin file's mapping, and parses big text
+     * files on every core, then replays the file's journal on top, if it has one
+     * @param file to load
+     * @param tasks empty store to load into
+     * @return number of lines skipped because they couldn't be parsed
+     * @throws IOException if issue with file to load
+     */
+    public static int load(File file, TaskStore tasks) throws IOException {
+        long start = System.nanoTime();
+        int errors = 0;
+        if (BinaryTaskFile.isBinary(file)) {
+            try (BinaryTaskFile binary = new BinaryTaskFile(file)) {
+                binary.readInto(tasks);
             }
+        } else {
+            errors = TaskParser.parse(file, tasks, Runtime.getRuntime().availableProcessors());
         }
-        return tasks;
+        TaskJournal.replay(file, tasks);
+        tasks.trimToSize();
+        LOAD_TIME.recordSince(start);
+        LOAD_BYTES.add(file.length());
+        return errors;
     }
 
     /**
      * Saved a list of tasks to a file
+     * Writes to a temp file next to it first and then moves that over
+     * the file, so a crash mid-save never leaves a half-written list
      * @param file to save to
      * @param tasks to save to the file
      * @throws IOException if issue with file to save to
      */
-    public static void save(File file, ObservableList<Task> tasks) throws IOException {
+    public static void save(File file, TaskStore tasks) throws IOException {
+        long start = System.nanoTime();
+        if (file != null && BinaryTaskFile.isBinary(file)) {
+            BinaryTaskFile.save(file, tasks);
+        } else if (file != null) {
+            writeReplacing(file, channel -> {
+                try (TaskWriter writer = new TaskWriter(channel)) {
+                    for (int i = 0; i < tasks.size(); i++) {
+                        writer.write(tasks, tasks.idAt(i));
+                    }
+                }
+            });
+        }
         if (file != null) {
-            try (PrintWriter pw = new PrintWriter(file)) {
-                for (Task task : tasks) {
-                    pw.println(task.serialize());
+            SAVE_TIME.recordSince(start);
+            SAVE_BYTES.add(file.length());
+        }
+    }
+
+    /**
+     * Writes a file through a temp file next to it, then moves that over it
+     * A symlink is followed, so the link stays and the file it points to is
+     * replaced, and the temp file takes the old file's permissions before
+     * anything is written, so a save never changes who can read the file.
+     * A new file gets the usual permissions for new files
+     * @param file to replace or create
+     * @param body writes the contents, the channel is forced after
+     * @throws IOException if issue writing or moving, the file is then left as it was
+     */
+    static void writeReplacing(File file, ChannelWrite body) throws IOException {
+        Path target = followLinks(file.toPath().toAbsolutePath());
+        Path temp = target.resolveSibling(target.getFileName() + "."
+                + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                PosixFileAttributeView posix = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+                if (posix != null && Files.exists(target)) {
+                    Files.setPosixFilePermissions(temp, posix.readAttributes().permissions());
                 }
+                body.write(channel);
+                channel.force(false);
+            }
+            moveAtomically(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Follows a chain of symlinks to the path it ends at, which may not exist yet
+     */
+    private static Path followLinks(Path path) throws IOException {
+        for (int i = 0; Files.isSymbolicLink(path); i++) {
+            if (i == MAX_SYMLINKS) {
+                throw new IOException("Too many levels of symbolic links: " + path);
             }
+            path = path.resolveSibling(Files.readSymbolicLink(path));
+        }
+        return path;
+    }
+
+    /**
+     * Moves a file over another in one step where the file system allows it
+     * @param from file to move
+     * @param to file to replace
+     * @throws IOException if issue moving
+     */
+    static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one file for changes made by other programs
+ * The file's folder is watched, since saves replace the file rather than
+ * write into it. Bursts of events are waited out, then onChange runs on
+ * the watcher thread if the file isn't the version last accepted: the one
+ * our own last write left behind, or one the owner has merged
+ */
+public class FileWatcher implements Closeable {
+
+    // Quiet period before a burst of events counts as one change
+    private static final long SETTLE_MILLIS = 100;
+
+    /**
+     * Identity, size and modification time of a file
+     * Our saves move a new file into place, so its identity changes even
+     * when a rewrite lands within the same modification time
+     */
+    public static final class Version {
+        private final Object key;
+        private final long size;
+        private final long modified;
+
+        private Version(Object key, long size, long modified) {
+            this.key = key;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        /**
+         * Reads the version of a file
+         * @param file to read
+         * @return its version, or null if it can't be read
+         */
+        public static Version of(File file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return new Version(attributes.fileKey(), attributes.size(), attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Version)) {
+                return false;
+            }
+            Version other = (Version) o;
+            return size == other.size && modified == other.modified && Objects.equals(key, other.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, size, modified);
+        }
+    }
+
+    private final File file;
+    private final Path name;
+    private final Runnable onChange;
+    private final WatchService service;
+    private volatile Version expected;
+
+    /**
+     * 2-param constructor, start() begins watching
+     * @param file to watch
+     * @param onChange called on the watcher thread after the file changed
+     * @throws IOException if the file's folder can't be watched
+     */
+    public FileWatcher(File file, Runnable onChange) throws IOException {
+        Path path = file.toPath().toAbsolutePath();
+        this.file = file;
+        this.name = path.getFileName();
+        this.onChange = onChange;
+        this.service = path.getFileSystem().newWatchService();
+        try {
+            path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+        expected = Version.of(file);
+    }
+
+    /**
+     * Starts watching on a new daemon thread
+     */
+    public void start() {
+        Thread thread = new Thread(this::watch, "file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs a write of our own to the file, so it doesn't count as a change
+     * Refused if the file holds a change that wasn't accepted yet, so an
+     * outside edit is never written over unseen
+     * @param write saving the file
+     * @return false if the write was refused
+     * @throws IOException if issue writing
+     */
+    public synchronized boolean write(SaveScheduler.Job write) throws IOException {
+        Version now = Version.of(file);
+        if (now != null && !now.equals(expected)) {
+            return false;
+        }
+        try {
+            write.write();
+        } finally {
+            expected = Version.of(file);
+        }
+        return true;
+    }
+
+    /**
+     * Accepts a version of the file, once its contents are merged or
+     * are to be written over
+     * @param version no longer counted as a change
+     */
+    public synchronized void accept(Version version) {
+        expected = version;
+    }
+
+    /**
+     * Get the version last accepted, the one our own last write left behind
+     * unless a change was merged since
+     * @return version, or null if the file couldn't be read then
+     */
+    public Version getVersion() {
+        return expected;
+    }
+
+    /**
+     * Get the file being watched
+     * @return file
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Stops watching, onChange is no longer called once the thread sees it
+     */
+    @Override
+    public void close() throws IOException {
+        service.close();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                if (!touched(service.take())) {
+                    continue;
+                }
+                // Wait out the rest of the burst
+                WatchKey key;
+                while ((key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    touched(key);
+                }
+                if (changed()) {
+                    onChange.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Check if the file moved on from the version last accepted
+     * @return true if someone else wrote it
+     */
+    private synchronized boolean changed() {
+        Version now = Version.of(file);
+        return now != null && !now.equals(expected);
+    }
+
+    /**
+     * Drains a key's events and re-arms it
+     * @return true if any event was about the watched file
+     */
+    private boolean touched(WatchKey key) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            touched |= event.kind() == StandardWatchEventKinds.OVERFLOW || name.equals(event.context());
+        }
+        key.reset();
+        return touched;
+    }
+}
@@ -9,12 +9,17 @@ import java.util.Objects;
 public class Main extends Application {
     @Override
     public void start(Stage stage) throws IOException {
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("Todolist.fxml")));
+        FXMLLoader loader = new FXMLLoader(Objects.requireNonNull(getClass().getResource("Todolist.fxml")));
+        Parent root = loader.load();
+        Controller controller = loader.getController();
+        Scene scene = new Scene(root, 600, 400);
         stage.setTitle("Task Manager");
-        stage.setScene(new Scene(root, 600, 400));
+        stage.setScene(scene);
         stage.show();
+        // Show an empty window first, the last file and the edit window follow
+        StartupTimer.afterFirstFrame(scene, controller::afterFirstFrame);
     }
     public static void main(String[] args) {
         launch(args);
     }
-}
\ No newline at end of file
+}
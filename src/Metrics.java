@@ -0,0 +1,351 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters, gauges and latency histograms for the hot paths
+ * Metrics are looked up by name once, into static fields, and recording
+ * into them takes no locks, just an adder or a CAS on a single slot.
+ * The numbers can be read with dump(), written to a file on exit with
+ * -Dtodolist.metrics.file=path, or streamed as todolist.Metric JFR events
+ * every second with -Dtodolist.metrics.jfr=true and a recording running
+ */
+public final class Metrics {
+
+    public static final String FILE_PROPERTY = "todolist.metrics.file";
+    public static final String JFR_PROPERTY = "todolist.metrics.jfr";
+
+    private static final Map<String, Metric> METRICS = new ConcurrentHashMap<>();
+    private static final long STARTED = System.nanoTime();
+
+    static {
+        String path = System.getProperty(FILE_PROPERTY);
+        if (path != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    dump(new File(path));
+                } catch (IOException e) {
+                    System.err.println("Failed to write metrics to " + path + ": " + e.getMessage());
+                }
+            }, "metrics-dump"));
+        }
+        if (Boolean.getBoolean(JFR_PROPERTY)) {
+            FlightRecorder.addPeriodicEvent(MetricEvent.class, Metrics::emitEvents);
+        }
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Get a counter, creating it the first time its name is used
+     * @param name of the counter, e.g. save.bytes
+     * @return counter
+     */
+    public static Counter counter(String name) {
+        return register(name, Counter.class, new Counter());
+    }
+
+    /**
+     * Get a gauge, creating it the first time its name is used
+     * @param name of the gauge, e.g. tasks
+     * @return gauge
+     */
+    public static Gauge gauge(String name) {
+        return register(name, Gauge.class, new Gauge());
+    }
+
+    /**
+     * Get a latency histogram, creating it the first time its name is used
+     * @param name of the histogram, e.g. save
+     * @return histogram
+     */
+    public static Histogram histogram(String name) {
+        return register(name, Histogram.class, new Histogram());
+    }
+
+    /**
+     * Writes every metric to a text file, one per line, sorted by name
+     * @param file to write
+     * @throws IOException if issue writing
+     */
+    public static void dump(File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8)) {
+            dump(out);
+        }
+    }
+
+    /**
+     * Writes every metric, one per line, sorted by name
+     * Counters and histograms also show how often they were hit per minute
+     * since the app started, which makes the save counters a save frequency
+     * @param out to write to
+     */
+    public static void dump(PrintWriter out) {
+        double minutes = Math.max(1e-9, (System.nanoTime() - STARTED) / 60e9);
+        for (Map.Entry<String, Metric> entry : new TreeMap<>(METRICS).entrySet()) {
+            out.println(entry.getKey() + " " + entry.getValue().describe(minutes));
+        }
+        out.flush();
+    }
+
+    /**
+     * Forgets every recorded value, keeping the metrics themselves
+     */
+    public static void reset() {
+        METRICS.values().forEach(Metric::reset);
+    }
+
+    private static <T extends Metric> T register(String name, Class<T> type, T created) {
+        Metric metric = METRICS.computeIfAbsent(name, key -> created);
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " is already a " + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    private static void emitEvents() {
+        METRICS.forEach((name, metric) -> {
+            MetricEvent event = new MetricEvent();
+            event.name = name;
+            metric.fill(event);
+            event.commit();
+        });
+    }
+
+    /**
+     * A named number kept by the registry
+     */
+    private abstract static class Metric {
+        abstract String describe(double minutes);
+
+        abstract void fill(MetricEvent event);
+
+        abstract void reset();
+    }
+
+    /**
+     * Count of things that happened, or of bytes moved
+     */
+    public static final class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {
+        }
+
+        /**
+         * Adds one
+         */
+        public void increment() {
+            count.increment();
+        }
+
+        /**
+         * @param amount to add
+         */
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        /**
+         * @return total so far
+         */
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        String describe(double minutes) {
+            long total = get();
+            return String.format("count=%d rate=%.1f/min", total, total / minutes);
+        }
+
+        @Override
+        void fill(MetricEvent event) {
+            event.count = get();
+        }
+
+        @Override
+        void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Current level of something, last write wins
+     */
+    public static final class Gauge extends Metric {
+        private volatile long value;
+
+        private Gauge() {
+        }
+
+        /**
+         * @param value current level
+         */
+        public void set(long value) {
+            this.value = value;
+        }
+
+        /**
+         * @return last level set
+         */
+        public long get() {
+            return value;
+        }
+
+        @Override
+        String describe(double minutes) {
+            return "value=" + value;
+        }
+
+        @Override
+        void fill(MetricEvent event) {
+            event.count = value;
+        }
+
+        @Override
+        void reset() {
+            value = 0;
+        }
+    }
+
+    /**
+     * Latencies in nanoseconds, bucketed by powers of two
+     * Percentiles are read off the buckets, so they are within a factor of
+     * two, which is plenty to tell a 1 ms save from a 100 ms one
+     */
+    public static final class Histogram extends Metric {
+        private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE + 1);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        private Histogram() {
+        }
+
+        /**
+         * Records the time since a System.nanoTime() reading
+         * @param startNanos reading taken before the timed work
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * @param nanos latency to record
+         */
+        public void record(long nanos) {
+            long value = Math.max(0, nanos);
+            buckets.incrementAndGet(Long.SIZE - Long.numberOfLeadingZeros(value));
+            count.increment();
+            total.add(value);
+            if (value > max.get()) {
+                max.accumulateAndGet(value, Math::max);
+            }
+        }
+
+        /**
+         * @return number of latencies recorded
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Get an upper bound of a percentile
+         * @param percentile from 0 to 100
+         * @return nanoseconds at most that many percent of latencies took
+         */
+        public long percentile(double percentile) {
+            long[] counts = new long[buckets.length()];
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+                seen += counts[i];
+            }
+            long rank = (long) Math.ceil(seen * percentile / 100);
+            long passed = 0;
+            for (int i = 0; i < counts.length; i++) {
+                passed += counts[i];
+                if (passed >= rank && counts[i] > 0) {
+                    long upper = i == 0 ? 0 : i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(upper, max.get());
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        String describe(double minutes) {
+            long n = getCount();
+            return String.format("count=%d rate=%.1f/min mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                    n, n / minutes, n == 0 ? 0 : total.sum() / 1e6 / n,
+                    percentile(50) / 1e6, percentile(99) / 1e6, max.get() / 1e6);
+        }
+
+        @Override
+        void fill(MetricEvent event) {
+            event.count = getCount();
+            event.total = total.sum();
+            event.p50 = percentile(50);
+            event.p99 = percentile(99);
+            event.max = max.get();
+        }
+
+        @Override
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            total.reset();
+            max.set(0);
+        }
+    }
+
+    /**
+     * One metric's numbers, emitted every second while JFR records
+     */
+    @Name("todolist.Metric")
+    @Label("Task Manager Metric")
+    @Category("Task Manager")
+    @Description("Counter, gauge or latency histogram of the task manager")
+    @Period("1 s")
+    @StackTrace(false)
+    static class MetricEvent extends Event {
+        @Label("Name")
+        String name;
+        @Label("Count or Value")
+        long count;
+        @Label("Total Time")
+        @Timespan
+        long total;
+        @Label("50th Percentile")
+        @Timespan
+        long p50;
+        @Label("99th Percentile")
+        @Timespan
+        long p99;
+        @Label("Max")
+        @Timespan
+        long max;
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Arrays;
+
+/**
+ * Undoable removal of many tasks at once
+ * Holds only the ids of the removed rows, whose values stay in the list's
+ * store, so a cleared list costs 4 bytes per task in the history instead
+ * of a copy of every task
+ */
+public class RemovalAction implements UndoAction {
+
+    private static final long OVERHEAD = 64;
+
+    private final TaskList tasks;
+    private final TaskStore store;
+    private final int[] ids;
+    private final long bytes;
+
+    /**
+     * 2-param constructor
+     * @param tasks list the rows were removed from
+     * @param ids of the removed rows, not copied so don't change it
+     */
+    public RemovalAction(TaskList tasks, int[] ids) {
+        this.tasks = tasks;
+        this.store = tasks.getStore();
+        this.ids = ids;
+        long text = 0;
+        for (int id : ids) {
+            text += store.textLength(id);
+        }
+        this.bytes = OVERHEAD + (long) ids.length * Integer.BYTES + text;
+    }
+
+    /**
+     * Combines this removal with one made right after it on the same list,
+     * so undoing both merges the rows back in one pass
+     * @param next removal made after this one
+     * @return one action for both, or null if they can't be combined
+     */
+    RemovalAction mergedWith(RemovalAction next) {
+        if (next.tasks != tasks || next.store != store || tasks.getStore() != store) {
+            return null;
+        }
+        int[] both = Arrays.copyOf(ids, ids.length + next.ids.length);
+        System.arraycopy(next.ids, 0, both, ids.length, next.ids.length);
+        return new RemovalAction(tasks, both);
+    }
+
+    @Override
+    public void undo() {
+        if (tasks.getStore() == store) {
+            tasks.addRowsSorted(ids);
+        }
+    }
+
+    @Override
+    public void redo() {
+        if (tasks.getStore() == store) {
+            tasks.removeRows(ids);
+        }
+    }
+
+    /**
+     * Counts the ids plus the descriptions the removed rows keep in the store
+     * @return estimated bytes
+     */
+    @Override
+    public long estimatedBytes() {
+        return bytes;
+    }
+
+    /**
+     * Frees the removed rows' descriptions, nothing can undo the removal anymore
+     */
+    @Override
+    public void discard() {
+        if (tasks.getStore() == store) {
+            store.release(ids);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces bursts of save requests into one background write
+ * A request only marks the list dirty, the snapshot is captured once
+ * things have been quiet for the delay and is written on a worker thread
+ */
+public class SaveScheduler {
+
+    /**
+     * A captured snapshot, ready to be written off the JavaFX thread
+     */
+    public interface Job {
+        /**
+         * Writes the snapshot
+         * @throws IOException if issue writing
+         */
+        void write() throws IOException;
+    }
+
+    public static final long DEFAULT_DELAY_MILLIS = 300;
+
+    private static final Metrics.Counter SAVE_REQUESTS = Metrics.counter("save.requests");
+
+    private final ScheduledExecutorService writer;
+    private final Executor captureExecutor;
+    private final Supplier<Job> capture;
+    private final Consumer<IOException> onError;
+    private final long delayNanos;
+
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    // Captured jobs not written yet
+    private final AtomicInteger writing = new AtomicInteger();
+    private final AtomicLong savesRequested = new AtomicLong();
+    private final AtomicLong savesPerformed = new AtomicLong();
+    private volatile long lastRequest;
+
+    /**
+     * 4-param constructor
+     * @param captureExecutor thread the snapshot must be captured on, e.g. Platform::runLater
+     * @param capture snapshots the list, returning null when there is nothing to save to
+     * @param onError reports failed writes, called through the capture executor
+     * @param delayMillis quiet period before a write
+     */
+    public SaveScheduler(Executor captureExecutor, Supplier<Job> capture,
+                         Consumer<IOException> onError, long delayMillis) {
+        this.captureExecutor = captureExecutor;
+        this.capture = capture;
+        this.onError = onError;
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "task-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Marks the list dirty, the write happens once requests stop for the delay
+     */
+    public void requestSave() {
+        savesRequested.incrementAndGet();
+        SAVE_REQUESTS.increment();
+        lastRequest = System.nanoTime();
+        if (!dirty.getAndSet(true)) {
+            writer.schedule(this::waitForQuiet, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Drops a pending save, for when the list already matches the file
+     */
+    public void markClean() {
+        dirty.set(false);
+    }
+
+    /**
+     * Writes any pending changes right away and waits for the write to finish
+     * Must be called on the capture thread
+     */
+    public void flush() {
+        Job job = capture();
+        try {
+            writer.submit(() -> write(job)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Stops the writer thread, call flush() first to keep pending changes
+     */
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    /**
+     * Check if changes are waiting for their write
+     * @return true from a request until its snapshot is written
+     */
+    public boolean isDirty() {
+        return dirty.get() || writing.get() > 0;
+    }
+
+    /**
+     * @return number of times a save was asked for
+     */
+    public long getSavesRequested() {
+        return savesRequested.get();
+    }
+
+    /**
+     * @return number of times the file was actually written
+     */
+    public long getSavesPerformed() {
+        return savesPerformed.get();
+    }
+
+    /**
+     * Re-arms itself until no request came in for the delay, then captures
+     */
+    private void waitForQuiet() {
+        long wait = lastRequest + delayNanos - System.nanoTime();
+        if (wait > 0) {
+            writer.schedule(this::waitForQuiet, wait, TimeUnit.NANOSECONDS);
+            return;
+        }
+        captureExecutor.execute(() -> {
+            Job job = capture();
+            if (job != null) {
+                writer.execute(() -> write(job));
+            }
+        });
+    }
+
+    /**
+     * Captures a snapshot if the list is dirty
+     * The job counts as writing from before the dirty flag is cleared, so
+     * isDirty never reads false while changes are on their way to disk
+     * @return job to write, or null if there is nothing to save
+     */
+    private Job capture() {
+        writing.incrementAndGet();
+        Job job = dirty.getAndSet(false) ? capture.get() : null;
+        if (job == null) {
+            writing.decrementAndGet();
+        }
+        return job;
+    }
+
+    /**
+     * Runs a captured job on the writer thread
+     * @param job to run, may be null
+     */
+    private void write(Job job) {
+        if (job == null) {
+            return;
+        }
+        try {
+            job.write();
+            savesPerformed.incrementAndGet();
+        } catch (IOException e) {
+            captureExecutor.execute(() -> onError.accept(e));
+        } finally {
+            writing.decrementAndGet();
+        }
+    }
+}
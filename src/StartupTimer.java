@@ -0,0 +1,62 @@
+import javafx.application.Platform;
+import javafx.scene.Scene;
+
+import java.time.Instant;
+
+/**
+ * Times startup from JVM launch to the first frame and to the point the
+ * window is interactive, meaning the last file is in and the edit window is ready
+ * Prints one line when started with -Dtodolist.startup.report=true, and
+ * exits right after with -Dtodolist.startup.exit=true, which is how the
+ * startup harness and the AppCDS training run drive the app
+ */
+public class StartupTimer {
+
+    public static final String REPORT_PROPERTY = "todolist.startup.report";
+    public static final String EXIT_PROPERTY = "todolist.startup.exit";
+
+    private static final long LAUNCHED = ProcessHandle.current().info().startInstant()
+            .map(Instant::toEpochMilli)
+            .orElse(System.currentTimeMillis());
+
+    private static long firstFrameMillis = -1;
+    private static boolean interactive = false;
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Runs work once the scene has drawn its first frame
+     * Work queued from the first pulse runs after that pulse is rendered, so
+     * anything it does can't hold up the window appearing
+     * @param scene just shown
+     * @param work to run after the first frame
+     */
+    public static void afterFirstFrame(Scene scene, Runnable work) {
+        Runnable[] listener = new Runnable[1];
+        listener[0] = () -> {
+            scene.removePostLayoutPulseListener(listener[0]);
+            firstFrameMillis = System.currentTimeMillis() - LAUNCHED;
+            Platform.runLater(work);
+        };
+        scene.addPostLayoutPulseListener(listener[0]);
+    }
+
+    /**
+     * Marks the app interactive, only the first call counts
+     * Reports, and exits if asked to, on the JavaFX thread
+     */
+    public static void interactive() {
+        if (interactive) {
+            return;
+        }
+        interactive = true;
+        long interactiveMillis = System.currentTimeMillis() - LAUNCHED;
+        if (Boolean.getBoolean(REPORT_PROPERTY)) {
+            System.out.println("startup first-frame=" + firstFrameMillis + "ms interactive=" + interactiveMillis + "ms");
+        }
+        if (Boolean.getBoolean(EXIT_PROPERTY)) {
+            Platform.exit();
+        }
+    }
+}
@@ -1,15 +1,30 @@
 import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleBooleanProperty;
 
 import java.time.LocalDate;
 
 /**
  * Object representing a task that is stored in the list
+ * A new task holds its own values until it is added to a TaskList,
+ * after which it is a view of its row in the list's TaskStore
  */
 public class Task {
+    private TaskStore store;
+    private int id;
+
+    // Own values, only used while detached
     private String task;
     private LocalDate date;
-    private final BooleanProperty completed;
+    private boolean done;
+
+    // Built the first time a checkbox or listener needs it
+    private BooleanProperty completed;
+
+    // Text shown in the table, built once and dropped when the description or date changes
+    private String display;
+    private ReadOnlyStringWrapper displayProperty;
 
     /**
      * Task constructor
@@ -19,7 +34,16 @@ public class Task {
     public Task(String task, LocalDate date) {
         this.task = task;
         this.date = date;
-        completed = new SimpleBooleanProperty(false);
+    }
+
+    /**
+     * View constructor, only called by TaskStore
+     * @param store holding the task
+     * @param id of the task's row
+     */
+    Task(TaskStore store, int id) {
+        this.store = store;
+        this.id = id;
     }
 
     /**
@@ -27,7 +51,7 @@ public class Task {
      * @return task description
      */
     public String getTask() {
-        return task;
+        return store == null ? task : store.text(id);
     }
 
     /**
@@ -35,7 +59,12 @@ public class Task {
      * @param task new description
      */
     public void setTask(String task) {
-        this.task = task;
+        if (store == null) {
+            this.task = task;
+            displayChanged();
+        } else {
+            store.setText(id, task);
+        }
     }
 
     /**
@@ -43,7 +72,7 @@ public class Task {
      * @return date due
      */
     public LocalDate getDate() {
-        return date;
+        return store == null ? date : store.date(id);
     }
 
     /**
@@ -51,7 +80,32 @@ public class Task {
      * @param date new date
      */
     public void setDate(LocalDate date) {
-        this.date = date;
+        if (store == null) {
+            this.date = date;
+            displayChanged();
+        } else {
+            store.setEpochDay(id, (int) date.toEpochDay());
+        }
+    }
+
+    /**
+     * Get task completion value
+     * @return completed value
+     */
+    public boolean isCompleted() {
+        return store == null ? done : store.isCompleted(id);
+    }
+
+    /**
+     * Set task completion value, firing the same events as the checkbox
+     * @param value new completed value
+     */
+    public void setCompleted(boolean value) {
+        if (completed != null) {
+            completed.set(value);
+        } else if (value != isCompleted()) {
+            writeCompleted(value);
+        }
     }
 
     /**
@@ -60,19 +114,105 @@ public class Task {
      * @return completed value
      */
     public BooleanProperty completedProperty() {
+        if (completed == null) {
+            completed = new SimpleBooleanProperty(this, "completed", isCompleted()) {
+                @Override
+                protected void invalidated() {
+                    writeCompleted(get());
+                }
+            };
+        }
         return completed;
     }
 
+    /**
+     * Get the text the table shows for the task
+     * Kept up to date as the description or date change, so a cell showing
+     * it redraws on its own and nothing else has to be refreshed
+     * @return description and due date
+     */
+    public ReadOnlyStringProperty displayProperty() {
+        if (displayProperty == null) {
+            displayProperty = new ReadOnlyStringWrapper(this, "display", toString());
+        }
+        return displayProperty.getReadOnlyProperty();
+    }
+
+    /**
+     * Drops the cached display text after the description or date changed
+     * Called by the store for attached tasks
+     */
+    void displayChanged() {
+        display = null;
+        if (displayProperty != null) {
+            displayProperty.set(toString());
+        }
+    }
+
+    /**
+     * Stores a changed completion and reports it to the store
+     * Runs inside the store's completion writes, so a checkbox clicked in
+     * the table changes the row under the same lock as any other change
+     * @param value new completed value
+     */
+    private void writeCompleted(boolean value) {
+        TaskStore attached = store;
+        if (attached == null) {
+            done = value;
+            return;
+        }
+        attached.writeCompletion(() -> {
+            if (attached.isCompleted(id) != value) {
+                attached.setCompleted(id, value);
+                attached.completionChanged(this, !value, value);
+            }
+        });
+    }
+
+    /**
+     * Moves a detached task's values into a new row of a store
+     * @param store to move into
+     * @return id of the new row
+     */
+    int attach(TaskStore store) {
+        int row = store.newRow(task, (int) date.toEpochDay(), done);
+        store.setView(row, this);
+        this.store = store;
+        this.id = row;
+        this.task = null;
+        this.date = null;
+        return row;
+    }
+
+    /**
+     * Get the store this task is a view of
+     * @return store, or null while detached
+     */
+    TaskStore getStore() {
+        return store;
+    }
+
+    /**
+     * Get the row this task is a view of
+     * @return row id, only meaningful while attached
+     */
+    int getId() {
+        return id;
+    }
+
     /**
      * Serialize task for saving to a text file
      * @return serialized task
      */
     public String serialize() {
-        return task + " - " + date + " - " + completed.get();
+        return getTask() + " - " + getDate() + " - " + isCompleted();
     }
 
     @Override
     public String toString() {
-        return task + " - " +  date;
+        if (display == null) {
+            display = getTask() + " - " + getDate();
+        }
+        return display;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,340 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Command line batch mode, runs without JavaFX
+ * Files are streamed line by line from TaskParser straight into a
+ * TaskWriter, so memory stays the same whatever the size of the file,
+ * and several files are worked on at once.
+ * Usage: TaskCli command [--where query] [--out path] [--threads n] files...
+ *   filter    keeps the tasks matching --where
+ *   complete  checks the tasks matching --where
+ *   reopen    unchecks the tasks matching --where
+ *   purge     removes completed tasks, only those matching --where if given
+ *   concat    writes every file, in order, to the --out file
+ *   sort      sorts every file into the --out file, --run-mb n sets the heap a run may use
+ *   merge     merges files that are already sorted into the --out file, --dedupe drops repeats
+ * --where takes a search box query: words, from:yyyy-MM-dd, to:yyyy-MM-dd, is:done, is:open.
+ * Files are rewritten in place, or into the --out folder if given, which
+ * must not take two files of the same name. Lines that can't be parsed are
+ * copied through unchanged, so a rewrite never loses them.
+ * sort and merge ignore --where, see ExternalSort.
+ * Text task files only: convert .tbin files with BinaryTaskFile first, and
+ * open a file with a journal in the app once to fold it in
+ */
+public class TaskCli {
+
+    private static final String USAGE = "Usage: TaskCli <filter|complete|reopen|purge|concat|sort|merge>"
+            + " [--where <query>] [--out <path>] [--threads <n>] [--run-mb <n>] [--dedupe] <files...>";
+
+    // What an operation does with a line
+    private static final int DROP = 0;
+    private static final int KEEP_OPEN = 1;
+    private static final int KEEP_DONE = 2;
+
+    /**
+     * Decides what happens to each line
+     */
+    private interface Operation {
+        /**
+         * @param matches true if the line matches --where
+         * @param completed line's completion
+         * @return DROP, KEEP_OPEN or KEEP_DONE
+         */
+        int apply(boolean matches, boolean completed);
+    }
+
+    /**
+     * Counts for one file, or the total of a run
+     */
+    private static final class Result {
+        private final String name;
+        private long read;
+        private long written;
+        private long skipped;
+        private long nanos;
+        // Unparseable lines were written through, sort and merge drop them
+        private boolean copied = true;
+
+        private Result(String name) {
+            this.name = name;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            fail(USAGE);
+        }
+        String command = args[0];
+        TaskQuery query = TaskQuery.parse("");
+        File out = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long runBytes = ExternalSort.DEFAULT_RUN_BYTES;
+        boolean dedupe = false;
+        List<File> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            if ((arg.equals("--where") || arg.equals("--out") || arg.equals("--threads") || arg.equals("--run-mb"))
+                    && i + 1 == args.length) {
+                fail(arg + " needs a value\n" + USAGE);
+            }
+            try {
+                if (arg.equals("--where")) {
+                    query = TaskQuery.parse(args[++i]);
+                } else if (arg.equals("--out")) {
+                    out = new File(args[++i]);
+                } else if (arg.equals("--threads")) {
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                } else if (arg.equals("--run-mb")) {
+                    runBytes = Math.max(1, Long.parseLong(args[++i])) << 20;
+                } else if (arg.equals("--dedupe")) {
+                    dedupe = true;
+                } else {
+                    files.add(new File(arg));
+                }
+            } catch (IllegalArgumentException e) {
+                fail(e.getMessage());
+            }
+        }
+        if (files.isEmpty()) {
+            fail("No task files given\n" + USAGE);
+        }
+        for (File file : files) {
+            String problem = !file.isFile() ? "not found"
+                    : BinaryTaskFile.isBinary(file) ? "is binary, convert it with BinaryTaskFile first"
+                    : TaskJournal.exists(file) ? "has a journal, open it in the app once to fold it in" : null;
+            if (problem != null) {
+                fail(file + " " + problem);
+            }
+        }
+
+        long start = System.nanoTime();
+        if (command.equals("sort") || command.equals("merge")) {
+            if (out == null || out.isDirectory()) {
+                fail(command + " needs --out <file>");
+            }
+            ExternalSort.Stats stats = command.equals("sort") ? ExternalSort.sort(files, out, runBytes)
+                    : ExternalSort.merge(files, out, dedupe);
+            Result result = new Result(out.getName());
+            result.copied = false;
+            result.read = stats.getRead();
+            result.written = stats.getWritten();
+            result.skipped = stats.getSkipped();
+            result.nanos = System.nanoTime() - start;
+            if (stats.getRuns() > 0) {
+                System.out.printf("%d runs spilled%n", stats.getRuns());
+            }
+            report(List.of(result), result.nanos);
+            return;
+        }
+        Operation operation = operation(command);
+        List<Result> results;
+        if (operation == null) {
+            if (out == null) {
+                fail("concat needs --out <file>");
+            }
+            results = List.of(concat(files, out, query));
+        } else {
+            if (out != null && !out.isDirectory() && !out.mkdirs()) {
+                fail("Can't create folder " + out);
+            }
+            results = run(files, targets(files, out), query, operation, threads);
+        }
+        report(results, System.nanoTime() - start);
+    }
+
+    /**
+     * Get what a command does to each line
+     * @return operation, or null for concat
+     */
+    private static Operation operation(String command) {
+        switch (command) {
+            case "filter":
+                return (matches, completed) -> !matches ? DROP : completed ? KEEP_DONE : KEEP_OPEN;
+            case "complete":
+                return (matches, completed) -> matches || completed ? KEEP_DONE : KEEP_OPEN;
+            case "reopen":
+                return (matches, completed) -> !matches && completed ? KEEP_DONE : KEEP_OPEN;
+            case "purge":
+                return (matches, completed) -> completed ? (matches ? DROP : KEEP_DONE) : KEEP_OPEN;
+            case "concat":
+                return null;
+            default:
+                fail("Unknown command " + command + "\n" + USAGE);
+                return null;
+        }
+    }
+
+    /**
+     * Get the file each input is written to, failing if two would be written to the same one
+     * @param files inputs
+     * @param outFolder --out folder, or null to rewrite in place
+     * @return targets, in the order of the inputs
+     */
+    private static List<File> targets(List<File> files, File outFolder) throws IOException {
+        List<File> targets = new ArrayList<>();
+        Map<File, File> writers = new HashMap<>();
+        for (File file : files) {
+            File target = outFolder == null ? file : new File(outFolder, file.getName());
+            File other = writers.putIfAbsent(target.getCanonicalFile(), file);
+            if (other != null) {
+                fail(other + " and " + file + " would both be written to " + target);
+            }
+            targets.add(target);
+        }
+        return targets;
+    }
+
+    /**
+     * Works on every file, a few at a time
+     */
+    private static List<Result> run(List<File> files, List<File> targets, TaskQuery query, Operation operation,
+                                    int threads) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+        try {
+            List<Future<Result>> running = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                File target = targets.get(i);
+                running.add(pool.submit(() -> {
+                    Result result = new Result(file.getName());
+                    long start = System.nanoTime();
+                    writeReplacing(target, writer -> stream(file, writer, query, operation, result));
+                    result.nanos = System.nanoTime() - start;
+                    return result;
+                }));
+            }
+            List<Result> results = new ArrayList<>();
+            for (Future<Result> result : running) {
+                results.add(result.get());
+            }
+            return results;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Appends every file to one output, keeping the tasks matching --where
+     */
+    private static Result concat(List<File> files, File out, TaskQuery query) throws IOException {
+        Result result = new Result(out.getName());
+        Operation keep = operation("filter");
+        long start = System.nanoTime();
+        writeReplacing(out, writer -> {
+            for (File file : files) {
+                stream(file, writer, query, keep, result);
+            }
+        });
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    /**
+     * Body of a write, throwing the writer's IOException
+     */
+    private interface WriteBody {
+        void write(TaskWriter writer) throws IOException;
+    }
+
+    /**
+     * Writes a file next to the target first, then moves it over the target
+     */
+    private static void writeReplacing(File target, WriteBody body) throws IOException {
+        FileUtilities.writeReplacing(target, channel -> {
+            try (TaskWriter writer = new TaskWriter(channel)) {
+                body.write(writer);
+            }
+        });
+    }
+
+    /**
+     * Streams one file through an operation into a writer
+     * Lines that can't be parsed are written as they are
+     */
+    private static void stream(File file, TaskWriter writer, TaskQuery query, Operation operation,
+                               Result result) throws IOException {
+        List<String> prefixes = query.getPrefixes();
+        TaskParser.Sink sink = new TaskParser.Sink() {
+            @Override
+            public void accept(byte[] buf, int start, int end, int epochDay, boolean completed) {
+                result.read++;
+                boolean matches = epochDay >= query.getFromDay() && epochDay <= query.getToDay()
+                        && (query.getCompleted() == null || query.getCompleted() == completed)
+                        && (prefixes.isEmpty() || matchesWords(new String(buf, start, end - start,
+                        StandardCharsets.UTF_8), prefixes));
+                int action = operation.apply(matches, completed);
+                if (action != DROP) {
+                    try {
+                        writer.write(buf, start, end, epochDay, action == KEEP_DONE);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    result.written++;
+                }
+            }
+
+            @Override
+            public void unparsed(byte[] buf, int start, int end) {
+                try {
+                    writer.writeLine(buf, start, end);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            result.skipped += TaskParser.parse(channel, sink);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Check every prefix starts one of the description's words, like the search box
+     */
+    private static boolean matchesWords(String text, List<String> prefixes) {
+        List<String> words = TaskIndex.words(text);
+        for (String prefix : prefixes) {
+            if (words.stream().noneMatch(word -> word.startsWith(prefix))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void report(List<Result> results, long nanos) {
+        Result total = new Result("total");
+        for (Result result : results) {
+            System.out.printf("%s: %,d lines read, %,d written, %,.0f lines/s%s%n", result.name, result.read,
+                    result.written, result.read / Math.max(1e-9, result.nanos / 1e9),
+                    result.skipped > 0 ? ", " + result.skipped + " unparseable " + (result.copied ? "copied unchanged" : "dropped") : "");
+            total.read += result.read;
+            total.written += result.written;
+        }
+        double seconds = Math.max(1e-9, nanos / 1e9);
+        System.out.printf("%,d lines in %.2f s, %,.0f lines/s%n", total.read, seconds, total.read / seconds);
+    }
+
+    private static void fail(String message) {
+        System.err.println(message);
+        System.exit(2);
+    }
+}
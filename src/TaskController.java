@@ -1,4 +1,3 @@
-import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.DatePicker;
 import javafx.scene.control.TextArea;
@@ -15,37 +14,17 @@ public class TaskController {
     private Task task;
     private Stage stage;
 
-    private ObservableList<Task> tasks;
-    private UndoManager undoManager;
+    private TaskService service;
 
     @FXML
     private void delete() {
-        undoManager.push(new Action(
-                () -> tasks.add(task),
-                () -> tasks.remove(task)
-        ));
-        tasks.remove(task);
+        service.delete(task);
         stage.close();
     }
 
     @FXML
     private void save() {
-        String oldText = task.getTask();
-        String newText = taskDescription.getText();
-        LocalDate oldDate = task.getDate();
-        LocalDate newDate = date.getValue();
-        undoManager.push(new Action(
-                () -> {
-                    task.setTask(oldText);
-                    task.setDate(oldDate);
-                },
-                () -> {
-                    task.setTask(newText);
-                    task.setDate(newDate);
-                }
-        ));
-        task.setTask(newText);
-        task.setDate(newDate);
+        service.edit(task, taskDescription.getText(), date.getValue());
         stage.close();
     }
 
@@ -73,18 +52,10 @@ public class TaskController {
     }
 
     /**
-     * Set controller task list to edit
-     * @param tasks to edit
+     * Set the service the task belongs to
+     * @param service owning the task list
      */
-    public void setTasks(ObservableList<Task> tasks) {
-        this.tasks = tasks;
-    }
-
-    /**
-     * Set undo manager for undo / redo
-     * @param undoManager for undo / redo
-     */
-    public void setUndoManager(UndoManager undoManager) {
-        this.undoManager = undoManager;
+    public void setService(TaskService service) {
+        this.service = service;
     }
 }
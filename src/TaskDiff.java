@@ -0,0 +1,88 @@
+import java.util.BitSet;
+
+/**
+ * Tasks that differ between two sorted stores
+ * Rows are matched on date, description and completion, so an edited
+ * task shows up as one removed and one added row. Both stores are walked
+ * once side by side, no task or string is built
+ */
+public class TaskDiff {
+
+    private final BitSet removed;
+    private final TaskStore added;
+
+    private TaskDiff(BitSet removed, TaskStore added) {
+        this.removed = removed;
+        this.added = added;
+    }
+
+    /**
+     * Compares two stores sorted by sortByDate
+     * @param before list as it is
+     * @param after list as it should be
+     * @return positions of before to remove and rows of after to add
+     */
+    public static TaskDiff between(TaskStore before, TaskStore after) {
+        BitSet removed = new BitSet();
+        TaskStore added = new TaskStore();
+        int i = 0;
+        int j = 0;
+        while (i < before.size() || j < after.size()) {
+            int order;
+            if (i == before.size()) {
+                order = 1;
+            } else if (j == after.size()) {
+                order = -1;
+            } else {
+                order = compare(before, before.idAt(i), after, after.idAt(j));
+            }
+            if (order == 0) {
+                i++;
+                j++;
+            } else if (order < 0) {
+                removed.set(i++);
+            } else {
+                int id = after.idAt(j++);
+                int offset = after.textOffset(id);
+                added.add(after.textBytes(), offset, offset + after.textLength(id),
+                        after.epochDay(id), after.isCompleted(id));
+            }
+        }
+        return new TaskDiff(removed, added);
+    }
+
+    /**
+     * Get the positions of the first store to remove
+     * @return positions in list order
+     */
+    public BitSet getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Get the rows missing from the first store
+     * @return detached store of the rows to add, sorted
+     */
+    public TaskStore getAdded() {
+        return added;
+    }
+
+    /**
+     * Check if the stores hold the same tasks
+     * @return true if nothing needs to change
+     */
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.size() == 0;
+    }
+
+    /**
+     * Orders rows of two stores by due date, then description, then unchecked first
+     * Matches TaskStore.compare, with completion breaking ties. Equal date
+     * and text runs aren't sorted by completion, so a run in a different
+     * order shows as a few extra removed and re-added rows, never a wrong result
+     */
+    private static int compare(TaskStore a, int idA, TaskStore b, int idB) {
+        int order = TaskStore.compare(a, idA, b, idB);
+        return order != 0 ? order : Boolean.compare(a.isCompleted(idA), b.isCompleted(idB));
+    }
+}
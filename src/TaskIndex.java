@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+
+/**
+ * Search index over the tasks of a store
+ * Words map to the rows containing them, and a sorted array of every word
+ * turns a prefix into a binary search. Words first seen after that array was
+ * built wait in a small sorted set until there are enough to merge in.
+ * Dates need no index of their own: the list is kept sorted by date, so a
+ * date range is a binary search over the list order, and a query that is
+ * only a date range walks just the rows it returns. is:done and is:open
+ * take the store's completion column as a bitmap, so they narrow the rows
+ * the same way a word does.
+ * The index is built on the first search, then kept up to date as rows are
+ * added or edited. Removed rows stay in it and are skipped while searching,
+ * so undo can bring them back without reindexing. Once the words left
+ * behind by removed and edited rows pass an eighth of the list, the index
+ * is dropped and built afresh on the next search.
+ * Searching can build or merge the index, so its methods are synchronized
+ * for readers searching together
+ */
+public class TaskIndex {
+
+    /**
+     * Growable list of row ids
+     */
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void addTo(BitSet rows) {
+            for (int i = 0; i < size; i++) {
+                rows.set(ids[i]);
+            }
+        }
+    }
+
+    // Below this share of the date range, matches are sorted rather than found by walking the list
+    private static final int SCAN_RATIO = 32;
+    // New words are merged into the sorted array once there are this many, plus an eighth of it
+    private static final int MERGE_THRESHOLD = 1024;
+    // Rebuilt once this many rows, plus an eighth of the list, left stale words behind
+    private static final int STALE_THRESHOLD = 1024;
+
+    private final TaskStore store;
+    private final HashMap<String, Postings> words = new HashMap<>();
+    private String[] sortedWords = new String[0];
+    private final TreeSet<String> newWords = new TreeSet<>();
+    private final BitSet indexed = new BitSet();
+    // Rows whose description changed after indexing, their old words are still in the map
+    private final BitSet edited = new BitSet();
+    // Edits and removals since the index was built
+    private int stale;
+    private boolean built;
+
+    /**
+     * 1-param constructor
+     * @param store to index
+     */
+    public TaskIndex(TaskStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Indexes a row that was put into the list
+     * @param id of the row
+     */
+    public synchronized void added(int id) {
+        if (built && !indexed.get(id)) {
+            index(id);
+        }
+    }
+
+    /**
+     * Indexes the new description of an edited row
+     * @param id of the row
+     */
+    public synchronized void textChanged(int id) {
+        if (built) {
+            edited.set(id);
+            index(id);
+            stale++;
+            dropIfStale();
+        }
+    }
+
+    /**
+     * Notes a row taken out of the list, its words stay until the next rebuild
+     * @param id of the row
+     */
+    public synchronized void removed(int id) {
+        if (built && indexed.get(id)) {
+            stale++;
+            dropIfStale();
+        }
+    }
+
+    /**
+     * Finds every task matching a query
+     * @param query to run
+     * @return row ids in list order
+     */
+    public synchronized int[] search(TaskQuery query) {
+        if (!built) {
+            build();
+        }
+        int from = query.getFromDay() == Integer.MIN_VALUE ? 0 : store.firstPositionFrom(query.getFromDay());
+        int to = query.getToDay() == Integer.MAX_VALUE ? store.size() : store.firstPositionFrom(query.getToDay() + 1);
+        BitSet matches = wordMatches(query.getPrefixes());
+        if (query.getCompleted() != null) {
+            BitSet rows = store.rowsWhereCompleted(query.getCompleted());
+            if (matches == null) {
+                matches = rows;
+            } else {
+                matches.and(rows);
+            }
+        }
+
+        int[] ids;
+        int count = 0;
+        if (matches == null || matches.cardinality() > (to - from) / SCAN_RATIO) {
+            // Walk the date range of the list, already in order
+            ids = new int[Math.max(0, to - from)];
+            for (int i = from; i < to; i++) {
+                int id = store.idAt(i);
+                if ((matches == null || matches.get(id)) && query.matchesFilters(store, id)) {
+                    ids[count++] = id;
+                }
+            }
+        } else {
+            ids = new int[matches.cardinality()];
+            for (int id = matches.nextSetBit(0); id >= 0; id = matches.nextSetBit(id + 1)) {
+                if (store.isLive(id) && query.matchesFilters(store, id)) {
+                    ids[count++] = id;
+                }
+            }
+            store.sortRows(ids, count);
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Splits a description into lower case words
+     * @param text to split
+     * @return words, in order
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Get rows with a word starting with every prefix
+     * @return matching rows, or null if there are no prefixes
+     */
+    private BitSet wordMatches(List<String> prefixes) {
+        BitSet matches = null;
+        for (String prefix : prefixes) {
+            BitSet rows = new BitSet();
+            int first = Arrays.binarySearch(sortedWords, prefix);
+            for (int i = first < 0 ? -first - 1 : first;
+                 i < sortedWords.length && sortedWords[i].startsWith(prefix); i++) {
+                words.get(sortedWords[i]).addTo(rows);
+            }
+            for (String word : newWords.subSet(prefix, prefix + Character.MAX_VALUE)) {
+                words.get(word).addTo(rows);
+            }
+            if (matches == null) {
+                matches = rows;
+            } else {
+                matches.and(rows);
+            }
+        }
+        if (matches != null) {
+            // Edited rows may only have matched on their old words
+            BitSet stale = (BitSet) edited.clone();
+            stale.and(matches);
+            for (int id = stale.nextSetBit(0); id >= 0; id = stale.nextSetBit(id + 1)) {
+                if (!hasPrefixes(words(store.text(id)), prefixes)) {
+                    matches.clear(id);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean hasPrefixes(List<String> words, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            boolean found = false;
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Drops the index once stale words make up too much of it, the next search builds it again
+     */
+    private void dropIfStale() {
+        if (stale > STALE_THRESHOLD + store.size() / 8) {
+            words.clear();
+            sortedWords = new String[0];
+            newWords.clear();
+            indexed.clear();
+            edited.clear();
+            stale = 0;
+            built = false;
+        }
+    }
+
+    private void build() {
+        for (int i = 0; i < store.size(); i++) {
+            index(store.idAt(i));
+        }
+        sortedWords = words.keySet().toArray(new String[0]);
+        Arrays.sort(sortedWords);
+        newWords.clear();
+        built = true;
+    }
+
+    private void index(int id) {
+        indexed.set(id);
+        for (String word : words(store.text(id))) {
+            Postings postings = words.get(word);
+            if (postings == null) {
+                postings = new Postings();
+                words.put(word, postings);
+                if (built) {
+                    newWords.add(word);
+                }
+            }
+            postings.add(id);
+        }
+        if (newWords.size() > MERGE_THRESHOLD + sortedWords.length / 8) {
+            mergeNewWords();
+        }
+    }
+
+    /**
+     * Folds the words seen since the last merge into the sorted array
+     */
+    private void mergeNewWords() {
+        String[] merged = new String[sortedWords.length + newWords.size()];
+        int i = 0;
+        int next = 0;
+        for (String word : newWords) {
+            while (i < sortedWords.length && sortedWords[i].compareTo(word) < 0) {
+                merged[next++] = sortedWords[i++];
+            }
+            merged[next++] = word;
+        }
+        System.arraycopy(sortedWords, i, merged, next, sortedWords.length - i);
+        sortedWords = merged;
+        newWords.clear();
+    }
+}
@@ -0,0 +1,483 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of edits kept next to a task file
+ * Each edit is one checksummed record, so the cost of saving follows the
+ * size of the edit instead of the size of the list. A record gives its
+ * length up front and ends in a newline, its text isn't escaped, so a
+ * description may hold newlines of its own.
+ * The journal starts with the checksum of the snapshot it applies to;
+ * a checkpoint record marks where a compaction took its snapshot, so a
+ * crash between writing the snapshot and trimming the journal is safe
+ */
+public class TaskJournal implements Closeable {
+
+    public static final long COMPACT_THRESHOLD = 1 << 20;
+    private static final String SUFFIX = ".journal";
+    private static final String HEADER = "#base ";
+    // Length and checksum as 8 hex digits each, both followed by a space
+    private static final int RECORD_PREFIX = 18;
+
+    private final File taskFile;
+    private final Path journalPath;
+    private FileChannel channel;
+    private long size;
+    private long checkpoint = -1;
+
+    /**
+     * 1-param constructor
+     * @param taskFile snapshot the journal belongs to
+     */
+    private TaskJournal(File taskFile) {
+        this.taskFile = taskFile;
+        this.journalPath = journalFor(taskFile).toPath();
+    }
+
+    /**
+     * Get the journal file kept next to a task file
+     * @param taskFile snapshot file
+     * @return its journal file
+     */
+    public static File journalFor(File taskFile) {
+        return new File(taskFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * Check if a task file has a journal
+     * @param taskFile snapshot file
+     * @return true if a journal exists next to it
+     */
+    public static boolean exists(File taskFile) {
+        return journalFor(taskFile).exists();
+    }
+
+    /**
+     * Opens the journal of a task file for appending
+     * Drops anything past a torn record and records already folded into
+     * the snapshot, then rewrites the journal against the current snapshot
+     * @param taskFile snapshot file
+     * @return journal ready for appending
+     * @throws IOException if issue with either file
+     */
+    public static TaskJournal open(File taskFile) throws IOException {
+        TaskJournal journal = new TaskJournal(taskFile);
+        long base = checksum(taskFile);
+        List<String> records = liveRecords(taskFile, base);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeHeader(out, base);
+        for (String record : records) {
+            writeRecord(out, record);
+        }
+        replaceJournal(journal.journalPath, out.toByteArray());
+        journal.channel = FileChannel.open(journal.journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        journal.size = journal.channel.size();
+        return journal;
+    }
+
+    /**
+     * Replays a task file's journal over its freshly loaded snapshot
+     * Stops quietly at the first torn or corrupt record
+     * @param taskFile snapshot file
+     * @param tasks loaded from the snapshot, edited in place
+     * @throws IOException if issue reading either file
+     */
+    public static void replay(File taskFile, TaskStore tasks) throws IOException {
+        if (!exists(taskFile)) {
+            return;
+        }
+        List<String> records = liveRecords(taskFile, checksum(taskFile));
+        if (records.isEmpty()) {
+            return;
+        }
+
+        // Index rows by their serialized line, equal lines are interchangeable
+        // Journaled lines are re-parsed first so they trim the same way the snapshot did
+        Map<String, ArrayDeque<Integer>> index = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            int id = tasks.idAt(i);
+            index.computeIfAbsent(line(tasks.text(id), tasks.date(id), tasks.isCompleted(id)),
+                    k -> new ArrayDeque<>()).add(id);
+        }
+        BitSet removed = new BitSet();
+
+        for (String record : records) {
+            char op = record.charAt(0);
+            String data = record.length() > 2 ? record.substring(2) : "";
+            if (op == 'A') {
+                Task task = parse(data);
+                if (task != null) {
+                    tasks.add(task.getTask(), (int) task.getDate().toEpochDay(), task.isCompleted());
+                    index.computeIfAbsent(task.serialize(), k -> new ArrayDeque<>())
+                            .add(tasks.idAt(tasks.size() - 1));
+                }
+            } else if (op == 'R') {
+                Task task = parse(data);
+                Integer id = task == null ? null : take(index, task.serialize());
+                if (id != null) {
+                    removed.set(id);
+                }
+            } else if (op == 'T' || op == 'U') {
+                Task before;
+                Task after;
+                if (op == 'T') {
+                    before = parse(data);
+                    after = before == null ? null : parse(line(before.getTask(), before.getDate(),
+                            !before.isCompleted()));
+                } else {
+                    int space = data.indexOf(' ');
+                    int length = Integer.parseInt(data.substring(0, space));
+                    before = parse(data.substring(space + 1, space + 1 + length));
+                    after = parse(data.substring(space + 1 + length));
+                }
+                Integer id = before == null || after == null ? null : take(index, before.serialize());
+                if (id != null) {
+                    tasks.setText(id, after.getTask());
+                    tasks.setEpochDay(id, (int) after.getDate().toEpochDay());
+                    tasks.setCompleted(id, after.isCompleted());
+                    index.computeIfAbsent(after.serialize(), k -> new ArrayDeque<>()).add(id);
+                }
+            }
+        }
+
+        if (!removed.isEmpty()) {
+            BitSet positions = new BitSet();
+            for (int i = 0; i < tasks.size(); i++) {
+                if (removed.get(tasks.idAt(i))) {
+                    positions.set(i);
+                }
+            }
+            tasks.remove(positions);
+        }
+    }
+
+    /**
+     * Records a task added to the list
+     * @param task added
+     * @throws IOException if issue appending
+     */
+    public synchronized void added(Task task) throws IOException {
+        append("A " + task.serialize());
+    }
+
+    /**
+     * Records a task removed from the list
+     * @param task removed
+     * @throws IOException if issue appending
+     */
+    public synchronized void removed(Task task) throws IOException {
+        append("R " + task.serialize());
+    }
+
+    /**
+     * Records a task's checkbox changing
+     * @param task toggled
+     * @param oldValue completion before the toggle
+     * @throws IOException if issue appending
+     */
+    public synchronized void toggled(Task task, boolean oldValue) throws IOException {
+        append("T " + line(task.getTask(), task.getDate(), oldValue));
+    }
+
+    /**
+     * Records a task's description or date changing
+     * @param oldLine serialized task before the edit
+     * @param task after the edit
+     * @throws IOException if issue appending
+     */
+    public synchronized void updated(String oldLine, Task task) throws IOException {
+        append("U " + oldLine.length() + " " + oldLine + task.serialize());
+    }
+
+    /**
+     * Check if the journal holds edits that aren't in the snapshot yet
+     * @return true if anything was appended past the header
+     */
+    public synchronized boolean hasRecords() {
+        // Header is the prefix, 8 hex digits and a newline
+        return size > HEADER.length() + 9;
+    }
+
+    /**
+     * Check if the journal has grown enough to be folded into the snapshot
+     * @return true once past the compaction threshold
+     */
+    public synchronized boolean needsCompaction() {
+        return size > COMPACT_THRESHOLD && checkpoint < 0;
+    }
+
+    /**
+     * Marks the point a compaction snapshot is taken at
+     * Must be called together with copying the list, before any further edit
+     * @return false if a compaction is already in flight
+     * @throws IOException if issue appending
+     */
+    public synchronized boolean checkpoint() throws IOException {
+        if (checkpoint >= 0) {
+            return false;
+        }
+        long at = size;
+        append("C");
+        checkpoint = at;
+        return true;
+    }
+
+    /**
+     * Forgets the pending checkpoint after its snapshot failed to write
+     */
+    public synchronized void cancelCheckpoint() {
+        checkpoint = -1;
+    }
+
+    /**
+     * Trims everything up to the last checkpoint, once its snapshot is on disk
+     * @throws IOException if issue with either file
+     */
+    public synchronized void compact() throws IOException {
+        if (checkpoint < 0) {
+            return;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeHeader(out, checksum(taskFile));
+        byte[] journal = Files.readAllBytes(journalPath);
+        int tail = recordEnd(journal, (int) checkpoint);
+        out.write(journal, tail, journal.length - tail);
+
+        channel.close();
+        replaceJournal(journalPath, out.toByteArray());
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        checkpoint = -1;
+    }
+
+    /**
+     * Closes the journal, keeping it on disk
+     * @throws IOException if issue closing
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel.isOpen()) {
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes and removes the journal, once its edits are in the snapshot
+     * @throws IOException if issue deleting
+     */
+    public synchronized void delete() throws IOException {
+        close();
+        Files.deleteIfExists(journalPath);
+    }
+
+    /**
+     * Appends a single record with one write
+     * @param record to append
+     */
+    private void append(String record) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(record.length() + RECORD_PREFIX + 1);
+        writeRecord(out, record);
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+    }
+
+    /**
+     * Reads the records that still apply on top of the snapshot
+     * All of them if the header matches the snapshot, only those after the
+     * last checkpoint if a compaction wrote the snapshot but died before
+     * trimming, none if the snapshot was replaced some other way
+     * @param taskFile snapshot file
+     * @param base checksum of the snapshot
+     * @return payload of each live record
+     */
+    private static List<String> liveRecords(File taskFile, long base) throws IOException {
+        List<String> records = new ArrayList<>();
+        File journalFile = journalFor(taskFile);
+        if (!journalFile.exists()) {
+            return records;
+        }
+        byte[] journal = Files.readAllBytes(journalFile.toPath());
+        int headerEnd = indexAfterLine(journal, 0);
+        String header = new String(journal, 0, Math.max(0, headerEnd - 1), StandardCharsets.UTF_8);
+        if (headerEnd > journal.length || !header.startsWith(HEADER)) {
+            return records;
+        }
+        boolean matches;
+        try {
+            matches = Long.parseLong(header.substring(HEADER.length()), 16) == base;
+        } catch (NumberFormatException e) {
+            return records;
+        }
+
+        int lastCheckpoint = -1;
+        for (int start = headerEnd; start < journal.length; ) {
+            int end = recordEnd(journal, start);
+            String record = end > journal.length ? null : decode(journal, start, end);
+            if (record == null) {
+                break;
+            }
+            if (record.equals("C")) {
+                lastCheckpoint = records.size();
+            }
+            records.add(record);
+            start = end;
+        }
+
+        if (matches) {
+            return records;
+        } else if (lastCheckpoint >= 0) {
+            return new ArrayList<>(records.subList(lastCheckpoint + 1, records.size()));
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Checks and strips a record's checksum
+     * @param end index just past the record's newline
+     * @return payload, or null if the record is corrupt
+     */
+    private static String decode(byte[] journal, int start, int end) {
+        long expected;
+        try {
+            expected = Long.parseLong(new String(journal, start + 9, 8, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        int length = end - 1 - start - RECORD_PREFIX;
+        CRC32 crc = new CRC32();
+        crc.update(journal, start + RECORD_PREFIX, length);
+        if (crc.getValue() != expected) {
+            return null;
+        }
+        return new String(journal, start + RECORD_PREFIX, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return index just past the newline ending the line at start, or past the end if unterminated
+     */
+    private static int indexAfterLine(byte[] bytes, int start) {
+        for (int i = start; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return bytes.length + 1;
+    }
+
+    /**
+     * Finds the end of a record from its length, so newlines in its text are skipped over
+     * @return index just past the record's newline, or past the end if it's torn
+     */
+    private static int recordEnd(byte[] journal, int start) {
+        int torn = journal.length + 1;
+        if (journal.length - start < RECORD_PREFIX + 1 || journal[start + 8] != ' '
+                || journal[start + RECORD_PREFIX - 1] != ' ') {
+            return torn;
+        }
+        int length;
+        try {
+            length = Integer.parseInt(new String(journal, start, 8, StandardCharsets.US_ASCII), 16);
+        } catch (NumberFormatException e) {
+            return torn;
+        }
+        long end = (long) start + RECORD_PREFIX + length + 1;
+        if (length < 0 || end > journal.length || journal[(int) end - 1] != '\n') {
+            return torn;
+        }
+        return (int) end;
+    }
+
+    private static void writeHeader(ByteArrayOutputStream out, long base) {
+        out.writeBytes((HEADER + String.format("%08x", base) + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static void writeRecord(ByteArrayOutputStream out, String record) {
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeBytes(String.format("%08x %08x ", payload.length, crc.getValue())
+                .getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(payload);
+        out.write('\n');
+    }
+
+    /**
+     * Writes a journal to a temp file and moves it over the old one
+     */
+    private static void replaceJournal(Path journalPath, byte[] contents) throws IOException {
+        FileUtilities.writeReplacing(journalPath.toFile(), channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(contents);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * CRC32 of a whole file, 0 if it doesn't exist
+     * @param file to check
+     * @return checksum of its bytes
+     * @throws IOException if issue reading
+     */
+    static long checksum(File file) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        byte[] buf = new byte[1 << 16];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read;
+            while ((read = in.read(buf)) != -1) {
+                crc.update(buf, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * @return the task a journaled line holds, or null if it doesn't hold one
+     */
+    private static Task parse(String line) {
+        String[] parts = line.split(" - ", 3);
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            byte[] date = parts[1].getBytes(StandardCharsets.UTF_8);
+            Task task = new Task(parts[0].trim(), TaskParser.parseDate(date, 0, date.length));
+            task.setCompleted(Boolean.parseBoolean(parts[2].trim()));
+            return task;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static Integer take(Map<String, ArrayDeque<Integer>> index, String line) {
+        ArrayDeque<Integer> positions = index.get(line);
+        return positions == null ? null : positions.poll();
+    }
+
+    private static String line(String text, LocalDate date, boolean completed) {
+        return text + " - " + date + " - " + completed;
+    }
+}
@@ -0,0 +1,597 @@
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Observable task list backed by a TaskStore
+ * Tasks are only built for the rows that get looked at, so a TableView
+ * over a million rows only ever holds views for the rows on screen.
+ * Bulk changes are applied to the store in one pass and fired as a single
+ * change whose removed tasks are also built lazily, and batch() folds any
+ * number of adds and removes into one change the same way
+ */
+public class TaskList extends ObservableListBase<Task> {
+
+    private TaskStore store;
+    private TaskStore.CompletionListener completionListener;
+    private Consumer<Runnable> completionWrites = Runnable::run;
+    private int batchDepth = 0;
+    private TaskStore batchStore;
+    private int[] batchOrder;
+
+    /**
+     * non-param constructor, starts empty
+     */
+    public TaskList() {
+        this(new TaskStore());
+    }
+
+    /**
+     * 1-param constructor
+     * @param store holding the tasks
+     */
+    public TaskList(TaskStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Get the store holding the tasks
+     * @return backing store
+     */
+    public TaskStore getStore() {
+        return store;
+    }
+
+    /**
+     * Swaps in a new set of tasks as one change
+     * @param newStore holding the new tasks
+     */
+    public void setStore(TaskStore newStore) {
+        beginMutation();
+        TaskStore old = store;
+        int[] removed = old.remove(0, old.size());
+        old.setCompletionListener(null);
+        old.setCompletionWrites(Runnable::run);
+        store = newStore;
+        store.setCompletionListener(completionListener);
+        store.setCompletionWrites(completionWrites);
+        Change change = new Change(this);
+        change.add(0, store.size(), views(old, removed));
+        fire(change);
+    }
+
+    /**
+     * Set listener for checkbox changes on any task in the list
+     * @param listener to call, or null
+     */
+    public void setOnCompletionChanged(TaskStore.CompletionListener listener) {
+        this.completionListener = listener;
+        store.setCompletionListener(listener);
+    }
+
+    /**
+     * Set what every checkbox change on a task in the list runs inside
+     * @param writes taking the change to run, e.g. TaskService::write
+     */
+    public void setCompletionWrites(Consumer<Runnable> writes) {
+        this.completionWrites = writes;
+        store.setCompletionWrites(writes);
+    }
+
+    /**
+     * Runs changes to the list and fires their adds and removes as one change
+     * Listeners see the list as it was before and after, not each step between.
+     * A permutation can't be folded in, so one ends the change so far and is
+     * fired on its own. Batches can nest, the outermost one fires
+     * @param changes to run
+     */
+    public void batch(Runnable changes) {
+        batchDepth++;
+        try {
+            changes.run();
+        } finally {
+            if (--batchDepth == 0) {
+                flushBatch();
+            }
+        }
+    }
+
+    /**
+     * Sorts by due date, then description, on the store's columns
+     * Fired as one permutation, so nothing is removed or re-added
+     */
+    public void sortByDate() {
+        flushBatch();
+        int[] moved = store.sort();
+        if (moved != null) {
+            Change change = new Change(this);
+            change.permute(0, moved);
+            fireChange(change);
+        }
+    }
+
+    /**
+     * Adds a task where it belongs in a list kept sorted by sortByDate
+     * @param task to add
+     * @return position it was added at
+     */
+    public int addSorted(Task task) {
+        beginMutation();
+        int index = store.insertSorted(rowFor(task));
+        Change change = new Change(this);
+        change.add(index, index + 1, List.of());
+        fire(change);
+        return index;
+    }
+
+    /**
+     * Merges tasks into a list kept sorted by sortByDate, as one change
+     * @param tasks to add
+     */
+    public void addAllSorted(Collection<? extends Task> tasks) {
+        if (!tasks.isEmpty()) {
+            addRowsSorted(rowsFor(tasks));
+        }
+    }
+
+    /**
+     * Merges removed rows back into a list kept sorted by sortByDate, as one change
+     * @param ids of rows of this list's store that aren't in the list
+     */
+    public void addRowsSorted(int[] ids) {
+        if (ids.length == 0) {
+            return;
+        }
+        beginMutation();
+        int[] positions = store.insertSorted(ids, ids.length);
+        // One add step per run of neighbouring positions
+        Change change = new Change(this);
+        for (int from = 0; from < positions.length; ) {
+            int to = from + 1;
+            while (to < positions.length && positions[to] == positions[to - 1] + 1) {
+                to++;
+            }
+            change.add(positions[from], positions[to - 1] + 1, List.of());
+            from = to;
+        }
+        fire(change);
+    }
+
+    /**
+     * Removes rows by id as one change, skipping any that aren't in the list
+     * @param ids of rows of this list's store
+     * @return true if anything was removed
+     */
+    public boolean removeRows(int[] ids) {
+        BitSet set = new BitSet();
+        for (int id : ids) {
+            set.set(id);
+        }
+        return removePositions(set, true);
+    }
+
+    /**
+     * Get the row ids at a set of positions
+     * @param positions in the list
+     * @return row ids, in list order
+     */
+    public int[] idsAt(BitSet positions) {
+        int[] ids = new int[positions.cardinality()];
+        int i = 0;
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            ids[i++] = store.idAt(position);
+        }
+        return ids;
+    }
+
+    /**
+     * Moves a task whose date or description changed back to its sorted place
+     * Fired as a permutation of just the rows between the two places
+     * @param task that changed, ignored if it isn't in the list
+     */
+    public void reposition(Task task) {
+        int from = indexOf(task);
+        if (from < 0) {
+            return;
+        }
+        flushBatch();
+        int to = store.reposition(from);
+        if (to != from) {
+            int low = Math.min(from, to);
+            int high = Math.max(from, to);
+            int[] moved = new int[high - low + 1];
+            int shift = from < to ? -1 : 1;
+            for (int i = low; i <= high; i++) {
+                moved[i - low] = i == from ? to : i + shift;
+            }
+            Change change = new Change(this);
+            change.permute(low, moved);
+            fireChange(change);
+        }
+    }
+
+    @Override
+    public Task get(int index) {
+        return store.view(store.idAt(index));
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Task task && task.getStore() == store ? store.indexOf(task.getId()) : -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public void add(int index, Task task) {
+        beginMutation();
+        store.insert(index, rowFor(task));
+        Change change = new Change(this);
+        change.add(index, index + 1, List.of());
+        fire(change);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Task> tasks) {
+        return addAll(size(), tasks);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends Task> tasks) {
+        if (tasks.isEmpty()) {
+            return false;
+        }
+        beginMutation();
+        int[] ids = rowsFor(tasks);
+        store.insert(index, ids, ids.length);
+        Change change = new Change(this);
+        change.add(index, index + ids.length, List.of());
+        fire(change);
+        return true;
+    }
+
+    @Override
+    public Task set(int index, Task task) {
+        beginMutation();
+        int id = rowFor(task);
+        int old = store.set(index, id);
+        Change change = new Change(this);
+        change.add(index, index + 1, views(store, new int[] {old}));
+        fire(change);
+        return store.view(old);
+    }
+
+    @Override
+    public boolean setAll(Collection<? extends Task> tasks) {
+        beginMutation();
+        int[] removed = store.remove(0, store.size());
+        int[] ids = rowsFor(tasks);
+        store.insert(0, ids, ids.length);
+        Change change = new Change(this);
+        change.add(0, ids.length, views(store, removed));
+        fire(change);
+        return true;
+    }
+
+    @Override
+    public Task remove(int index) {
+        beginMutation();
+        int[] removed = store.remove(index, index + 1);
+        Change change = new Change(this);
+        change.add(index, index, views(store, removed));
+        fire(change);
+        return store.view(removed[0]);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public void remove(int from, int to) {
+        removeRange(from, to);
+    }
+
+    @Override
+    protected void removeRange(int from, int to) {
+        if (from == to) {
+            return;
+        }
+        beginMutation();
+        int[] removed = store.remove(from, to);
+        Change change = new Change(this);
+        change.add(from, from, views(store, removed));
+        fire(change);
+    }
+
+    @Override
+    public void clear() {
+        removeRange(0, size());
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> tasks) {
+        BitSet ids = new BitSet();
+        for (Object o : tasks) {
+            if (o instanceof Task task && task.getStore() == store) {
+                ids.set(task.getId());
+            }
+        }
+        return removePositions(ids, true);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> tasks) {
+        BitSet ids = new BitSet();
+        for (Object o : tasks) {
+            if (o instanceof Task task && task.getStore() == store) {
+                ids.set(task.getId());
+            }
+        }
+        return removePositions(ids, false);
+    }
+
+    /**
+     * Removes every row whose id is (or isn't) in the set, in one pass
+     * @param ids row ids to test against
+     * @param matching true to remove rows in the set, false to keep them
+     * @return true if anything was removed
+     */
+    private boolean removePositions(BitSet ids, boolean matching) {
+        BitSet positions = new BitSet();
+        for (int i = 0; i < store.size(); i++) {
+            if (ids.get(store.idAt(i)) == matching) {
+                positions.set(i);
+            }
+        }
+        return removePositions(positions);
+    }
+
+    /**
+     * Removes every marked position as one change
+     * @param positions to remove
+     * @return true if anything was removed
+     */
+    boolean removePositions(BitSet positions) {
+        if (positions.isEmpty()) {
+            return false;
+        }
+        beginMutation();
+        // Each run is reported at its index once the runs before it are gone
+        Change change = new Change(this);
+        int removedSoFar = 0;
+        for (int from = positions.nextSetBit(0); from >= 0; ) {
+            int to = positions.nextClearBit(from);
+            int[] ids = new int[to - from];
+            for (int i = from; i < to; i++) {
+                ids[i - from] = store.idAt(i);
+            }
+            change.add(from - removedSoFar, from - removedSoFar, views(store, ids));
+            removedSoFar += to - from;
+            from = positions.nextSetBit(to);
+        }
+        store.remove(positions);
+        fire(change);
+        return true;
+    }
+
+    /**
+     * Remembers the list as it was before the first change of a batch
+     */
+    private void beginMutation() {
+        if (batchDepth > 0 && batchOrder == null) {
+            batchStore = store;
+            batchOrder = store.ids();
+        }
+    }
+
+    /**
+     * Fires a change now, or leaves it to the batch it was made in
+     */
+    private void fire(Change change) {
+        if (batchDepth == 0) {
+            fireChange(change);
+        }
+    }
+
+    /**
+     * Fires the adds and removes of the batch so far as one change
+     * Rows in both the old and the new order keep their relative order
+     * (permutations end the batch first), so one pass over both finds each
+     * run of removed rows and the run of added rows taking its place
+     */
+    private void flushBatch() {
+        int[] before = batchOrder;
+        TaskStore beforeStore = batchStore;
+        batchOrder = null;
+        batchStore = null;
+        if (before == null) {
+            return;
+        }
+        Change change = new Change(this);
+        int size = store.size();
+        if (beforeStore != store) {
+            change.add(0, size, views(beforeStore, before));
+            fireChange(change);
+            return;
+        }
+        BitSet wasIn = new BitSet();
+        for (int id : before) {
+            wasIn.set(id);
+        }
+        int i = 0;
+        int j = 0;
+        while (i < before.length || j < size) {
+            int removedFrom = i;
+            while (i < before.length && !store.isLive(before[i])) {
+                i++;
+            }
+            int addedFrom = j;
+            while (j < size && !wasIn.get(store.idAt(j))) {
+                j++;
+            }
+            if (i > removedFrom || j > addedFrom) {
+                change.add(addedFrom, j, views(store, Arrays.copyOfRange(before, removedFrom, i)));
+            } else if (i < before.length && j < size && before[i] == store.idAt(j)) {
+                i++;
+                j++;
+            } else {
+                // A row was taken out and put back somewhere else, replace the rest
+                change.add(j, size, views(store, Arrays.copyOfRange(before, i, before.length)));
+                break;
+            }
+        }
+        if (!change.isEmpty()) {
+            fireChange(change);
+        }
+    }
+
+    /**
+     * Gets a row for a task, attaching it if it is new to this store
+     * A task from another store, or one already in the list, gets a copy
+     */
+    private int rowFor(Task task) {
+        if (task.getStore() == store && !store.isLive(task.getId())) {
+            return task.getId();
+        } else if (task.getStore() == null) {
+            return task.attach(store);
+        }
+        return store.newRow(task.getTask(), (int) task.getDate().toEpochDay(), task.isCompleted());
+    }
+
+    private int[] rowsFor(Collection<? extends Task> tasks) {
+        int[] ids = new int[tasks.size()];
+        int i = 0;
+        BitSet seen = new BitSet();
+        for (Task task : tasks) {
+            int id = rowFor(task);
+            if (seen.get(id)) {
+                id = store.newRow(task.getTask(), (int) task.getDate().toEpochDay(), task.isCompleted());
+            }
+            seen.set(id);
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    /**
+     * Lazy list of views, so tasks are only built for the rows that get read
+     * @param store holding the rows
+     * @param ids of the rows
+     * @return read-only list of views
+     */
+    static List<Task> views(TaskStore store, int[] ids) {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return store.view(ids[index]);
+            }
+
+            @Override
+            public int size() {
+                return ids.length;
+            }
+        };
+    }
+
+    /**
+     * A change made of add / remove / replace steps
+     */
+    private static class Change extends ListChangeListener.Change<Task> {
+        private final List<int[]> ranges = new ArrayList<>();
+        private final List<List<Task>> removed = new ArrayList<>();
+        private int[] permutation = new int[0];
+        private int cursor = -1;
+
+        Change(TaskList list) {
+            super(list);
+        }
+
+        /**
+         * Adds a step, tasks in [from, to) were added in place of removed
+         */
+        void add(int from, int to, List<Task> removedTasks) {
+            ranges.add(new int[] {from, to});
+            removed.add(removedTasks);
+        }
+
+        /**
+         * Makes this a single step moving positions from [from, from + moved.length)
+         * @param moved new position of each old position in the range
+         */
+        void permute(int from, int[] moved) {
+            add(from, from + moved.length, List.of());
+            permutation = moved;
+        }
+
+        boolean isEmpty() {
+            return ranges.isEmpty();
+        }
+
+        @Override
+        public boolean next() {
+            return ++cursor < ranges.size();
+        }
+
+        @Override
+        public void reset() {
+            cursor = -1;
+        }
+
+        @Override
+        public int getFrom() {
+            checkCursor();
+            return ranges.get(cursor)[0];
+        }
+
+        @Override
+        public int getTo() {
+            checkCursor();
+            return ranges.get(cursor)[1];
+        }
+
+        @Override
+        public List<Task> getRemoved() {
+            checkCursor();
+            return removed.get(cursor);
+        }
+
+        @Override
+        protected int[] getPermutation() {
+            checkCursor();
+            return permutation;
+        }
+
+        private void checkCursor() {
+            if (cursor < 0 || cursor >= ranges.size()) {
+                throw new IllegalStateException("Invalid Change state: next() must be called before inspecting the Change.");
+            }
+        }
+    }
+}
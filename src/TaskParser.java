@@ -0,0 +1,467 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Streams tasks out of a task file line by line
+ * Reads through a FileChannel into one reusable buffer, finds the " - "
+ * separators by hand and parses ISO dates straight from the bytes,
+ * so no Scanner, regex or DateTimeFormatter is involved
+ */
+public class TaskParser {
+
+    /**
+     * Receives each parsed line without a Task being built for it
+     */
+    public interface Sink {
+        /**
+         * @param buf holding the line
+         * @param start of the trimmed UTF-8 description
+         * @param end of the description, exclusive
+         * @param epochDay due date
+         * @param completed completion
+         */
+        void accept(byte[] buf, int start, int end, int epochDay, boolean completed);
+
+        /**
+         * Receives a non-blank line that couldn't be parsed, counted as skipped either way
+         * @param buf holding the line
+         * @param start of the line
+         * @param end of the line, exclusive, without its line break
+         */
+        default void unparsed(byte[] buf, int start, int end) {
+        }
+    }
+
+    /**
+     * Fills the read buffer, the way ReadableByteChannel.read does
+     */
+    private interface Source {
+        int read(ByteBuffer buffer) throws IOException;
+    }
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int CHUNKS_PER_THREAD = 4;
+    public static final long PARALLEL_THRESHOLD = 8L << 20;
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    private final Sink sink;
+    private int errors;
+
+    /**
+     * 1-param constructor
+     * @param sink to hand every parsed line to
+     */
+    private TaskParser(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Parses a task file, handing each line's values to the sink in file order
+     * @param file to parse
+     * @param sink to receive lines
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(File file, Sink sink) throws IOException {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return parse(in.getChannel(), sink);
+        }
+    }
+
+    /**
+     * Parses an open task file from its current position to the end
+     * The channel's position can be read meanwhile to follow progress
+     * @param channel to read, left open
+     * @param sink to receive lines
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(FileChannel channel, Sink sink) throws IOException {
+        TaskParser parser = new TaskParser(sink);
+        parser.read(channel::read);
+        return parser.errors;
+    }
+
+    /**
+     * Parses a range of an open task file with positional reads, so several
+     * threads can parse ranges of the same channel at once
+     * @param channel to read, left open
+     * @param from first byte, at the start of a line
+     * @param to end of the range, exclusive, at the start of a line or the end of the file
+     * @param sink to receive lines
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(FileChannel channel, long from, long to, Sink sink) throws IOException {
+        TaskParser parser = new TaskParser(sink);
+        long[] position = {from};
+        parser.read(buffer -> {
+            long remaining = to - position[0];
+            if (remaining <= 0) {
+                return -1;
+            }
+            int limit = buffer.limit();
+            if (buffer.remaining() > remaining) {
+                buffer.limit(buffer.position() + (int) remaining);
+            }
+            int read = channel.read(buffer, position[0]);
+            buffer.limit(limit);
+            if (read > 0) {
+                position[0] += read;
+            }
+            return read;
+        });
+        return parser.errors;
+    }
+
+    /**
+     * Parses a task file into a store on several threads
+     * The file is cut into line-aligned byte ranges, a few per thread so an
+     * uneven range doesn't hold the rest up, each parsed into its own store
+     * on a fork-join pool. The ranges are then appended in file order, so the
+     * store ends up the same as after a sequential parse. Files under
+     * PARALLEL_THRESHOLD, or a single thread, take the sequential path
+     * @param file to parse
+     * @param store to append tasks to
+     * @param threads most threads to parse on
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(File file, TaskStore store, int threads) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (threads <= 1 || length < PARALLEL_THRESHOLD) {
+                return parse(channel, (buf, start, end, epochDay, completed) ->
+                        store.add(buf, start, end, epochDay, completed));
+            }
+            long[] bounds = lineBounds(channel, length, threads * CHUNKS_PER_THREAD);
+            int chunks = bounds.length - 1;
+            TaskStore[] parts = new TaskStore[chunks];
+            List<Callable<Integer>> jobs = new ArrayList<>(chunks);
+            for (int i = 0; i < chunks; i++) {
+                // The first range goes straight into the store, the rest are appended after
+                TaskStore part = i == 0 ? store : new TaskStore();
+                parts[i] = part;
+                long from = bounds[i];
+                long to = bounds[i + 1];
+                jobs.add(() -> parse(channel, from, to, (buf, start, end, epochDay, completed) ->
+                        part.add(buf, start, end, epochDay, completed)));
+            }
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            int errors = 0;
+            try {
+                for (Future<Integer> job : pool.invokeAll(jobs)) {
+                    errors += job.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Parsing interrupted");
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException io) {
+                    throw io;
+                }
+                throw new IllegalStateException(e.getCause());
+            } finally {
+                pool.shutdown();
+            }
+            for (int i = 1; i < chunks; i++) {
+                int[] ids = store.copyRows(parts[i]);
+                store.insert(store.size(), ids, ids.length);
+                parts[i] = null;
+            }
+            return errors;
+        }
+    }
+
+    /**
+     * Cuts a file into ranges that each start at the beginning of a line
+     * Each cut is moved forward to just past the next \n, so \r\n pairs stay whole
+     * @param channel to read
+     * @param length of the file
+     * @param chunks number of ranges to aim for
+     * @return start of each range, then the file length
+     * @throws IOException if issue reading the file
+     */
+    static long[] lineBounds(FileChannel channel, long length, int chunks) throws IOException {
+        long[] bounds = new long[chunks + 1];
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        int count = 1;
+        for (int i = 1; i < chunks; i++) {
+            long cut = Math.max(bounds[count - 1], length * i / chunks - 1);
+            long lineStart = nextLineStart(channel, cut, length, buffer);
+            if (lineStart > bounds[count - 1] && lineStart < length) {
+                bounds[count++] = lineStart;
+            }
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * Finds where the line after a position starts
+     * @param channel to read
+     * @param from position to look from
+     * @param length of the file
+     * @param buffer scratch space for the reads
+     * @return just past the next \n at or after from, or length if there is none
+     * @throws IOException if issue reading the file
+     */
+    static long nextLineStart(FileChannel channel, long from, long length, ByteBuffer buffer) throws IOException {
+        for (long cut = from; cut < length; ) {
+            buffer.clear();
+            int read = channel.read(buffer, cut);
+            if (read <= 0) {
+                break;
+            }
+            for (int j = 0; j < read; j++) {
+                if (buffer.get(j) == '\n') {
+                    return cut + j + 1;
+                }
+            }
+            cut += read;
+        }
+        return length;
+    }
+
+    /**
+     * Parses a task file straight into the columns of a store
+     * Description bytes are copied into the store's arena without decoding
+     * @param file to parse
+     * @param store to append tasks to
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(File file, TaskStore store) throws IOException {
+        return parse(file, (buf, start, end, epochDay, completed) ->
+                store.add(buf, start, end, epochDay, completed));
+    }
+
+    /**
+     * Parses a task file, handing each task to the consumer in file order
+     * @param file to parse
+     * @param consumer to receive tasks
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(File file, Consumer<Task> consumer) throws IOException {
+        return parse(file, (buf, start, end, epochDay, completed) -> {
+            Task task = new Task(new String(buf, start, end - start, StandardCharsets.UTF_8),
+                    LocalDate.ofEpochDay(epochDay));
+            task.setCompleted(completed);
+            consumer.accept(task);
+        });
+    }
+
+    /**
+     * Parses a task file, handing tasks to the consumer in batches
+     * Every batch is a fresh list, so the consumer may keep it
+     * @param file to parse
+     * @param batchSize max tasks per batch
+     * @param batches to receive each batch
+     * @return number of non-blank lines that couldn't be parsed
+     * @throws IOException if issue reading the file
+     */
+    public static int parse(File file, int batchSize, Consumer<List<Task>> batches) throws IOException {
+        List<List<Task>> pending = new ArrayList<>(1);
+        pending.add(new ArrayList<>(batchSize));
+        int errors = parse(file, task -> {
+            List<Task> batch = pending.get(0);
+            batch.add(task);
+            if (batch.size() == batchSize) {
+                batches.accept(batch);
+                pending.set(0, new ArrayList<>(batchSize));
+            }
+        });
+        if (!pending.get(0).isEmpty()) {
+            batches.accept(pending.get(0));
+        }
+        return errors;
+    }
+
+    /**
+     * Reads the source to the end, splitting on \n, \r\n and \r
+     * @param source to read
+     * @throws IOException if issue reading
+     */
+    private void read(Source source) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(buf);
+        boolean skipLineFeed = false;
+        int scanFrom = 0;
+
+        while (true) {
+            boolean eof = source.read(buffer) == -1;
+            int limit = buffer.position();
+            int lineStart = 0;
+
+            for (int i = scanFrom; i < limit; i++) {
+                byte b = buf[i];
+                if (b == '\n' || b == '\r') {
+                    if (b == '\n' && skipLineFeed && i == lineStart) {
+                        // Second half of a \r\n split across reads
+                        lineStart = i + 1;
+                    } else {
+                        line(buf, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                    skipLineFeed = b == '\r';
+                } else {
+                    skipLineFeed = false;
+                }
+            }
+
+            if (eof) {
+                if (lineStart < limit) {
+                    line(buf, lineStart, limit);
+                }
+                return;
+            }
+
+            // Carry the unfinished line to the front of the buffer
+            int remaining = limit - lineStart;
+            if (remaining == buf.length) {
+                byte[] grown = new byte[buf.length * 2];
+                System.arraycopy(buf, 0, grown, 0, remaining);
+                buf = grown;
+                buffer = ByteBuffer.wrap(buf);
+            } else if (lineStart > 0) {
+                System.arraycopy(buf, lineStart, buf, 0, remaining);
+            }
+            buffer.clear().position(remaining);
+            scanFrom = remaining;
+        }
+    }
+
+    /**
+     * Parses a single line, counting it as an error if it doesn't hold a task
+     * @param buf holding the line
+     * @param start of the line
+     * @param end of the line, exclusive
+     */
+    private void line(byte[] buf, int start, int end) {
+        if (isBlank(buf, start, end)) {
+            return;
+        }
+        int first = indexOfSeparator(buf, start, end);
+        int second = first < 0 ? -1 : indexOfSeparator(buf, first + 3, end);
+        if (second < 0) {
+            errors++;
+            sink.unparsed(buf, start, end);
+            return;
+        }
+        int epochDay;
+        try {
+            epochDay = (int) parseDate(buf, first + 3, second).toEpochDay();
+        } catch (RuntimeException e) {
+            errors++;
+            sink.unparsed(buf, start, end);
+            return;
+        }
+        boolean completed = parseBoolean(buf, second + 3, end);
+        int textEnd = first;
+        while (start < textEnd && (buf[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (textEnd > start && (buf[textEnd - 1] & 0xFF) <= ' ') {
+            textEnd--;
+        }
+        sink.accept(buf, start, textEnd, epochDay, completed);
+    }
+
+    /**
+     * Finds the next " - " separator
+     * @return index of the separator, or -1 if there is none
+     */
+    private static int indexOfSeparator(byte[] buf, int from, int end) {
+        for (int i = from; i + 2 < end; i++) {
+            if (buf[i + 1] == '-' && buf[i] == ' ' && buf[i + 2] == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a yyyy-MM-dd date directly from the bytes
+     * Anything more exotic falls back to LocalDate.parse
+     * @throws DateTimeException if the date is invalid
+     */
+    static LocalDate parseDate(byte[] buf, int start, int end) {
+        while (start < end && (buf[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        if (end - start == 10 && buf[start + 4] == '-' && buf[start + 7] == '-') {
+            int year = digits(buf, start, 4);
+            int month = digits(buf, start + 5, 2);
+            int day = digits(buf, start + 8, 2);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(new String(buf, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the value of count ASCII digits, or -1 if any byte isn't a digit
+     */
+    private static int digits(byte[] buf, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Same rules as Boolean.parseBoolean on the trimmed range
+     */
+    private static boolean parseBoolean(byte[] buf, int start, int end) {
+        while (start < end && (buf[start] & 0xFF) <= ' ') {
+            start++;
+        }
+        while (end > start && (buf[end - 1] & 0xFF) <= ' ') {
+            end--;
+        }
+        return end - start == 4
+                && (buf[start] | 0x20) == 't'
+                && (buf[start + 1] | 0x20) == 'r'
+                && (buf[start + 2] | 0x20) == 'u'
+                && (buf[start + 3] | 0x20) == 'e';
+    }
+
+    /**
+     * Same rules as String.isBlank for the ASCII whitespace a task file can hold
+     */
+    private static boolean isBlank(byte[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            byte b = buf[i];
+            if (b != ' ' && (b < 9 || b > 13) && (b < 0x1C || b > 0x1F)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A search box query
+ * Plain words match tasks with a word starting with each of them,
+ * from:yyyy-MM-dd and to:yyyy-MM-dd bound the due date (inclusive),
+ * and is:done / is:open filter on completion
+ */
+public class TaskQuery {
+
+    private final List<String> prefixes;
+    private final int fromDay;
+    private final int toDay;
+    private final Boolean completed;
+
+    /**
+     * 4-param constructor
+     * @param prefixes lower case word prefixes that must all match
+     * @param fromDay first due date as an epoch day, Integer.MIN_VALUE for none
+     * @param toDay last due date as an epoch day, Integer.MAX_VALUE for none
+     * @param completed completion to match, or null for either
+     */
+    public TaskQuery(List<String> prefixes, int fromDay, int toDay, Boolean completed) {
+        this.prefixes = Collections.unmodifiableList(new ArrayList<>(prefixes));
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.completed = completed;
+    }
+
+    /**
+     * Parses what was typed in the search box
+     * @param text query text
+     * @return parsed query
+     * @throws IllegalArgumentException if a date or is: filter is invalid
+     */
+    public static TaskQuery parse(String text) {
+        List<String> prefixes = new ArrayList<>();
+        int fromDay = Integer.MIN_VALUE;
+        int toDay = Integer.MAX_VALUE;
+        Boolean completed = null;
+        for (String term : text.trim().split("\\s+")) {
+            String lower = term.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("from:")) {
+                fromDay = parseDay(term.substring(5));
+            } else if (lower.startsWith("to:")) {
+                toDay = parseDay(term.substring(3));
+            } else if (lower.equals("is:done")) {
+                completed = true;
+            } else if (lower.equals("is:open")) {
+                completed = false;
+            } else if (lower.startsWith("is:")) {
+                throw new IllegalArgumentException("Unknown filter " + term + ", use is:done or is:open");
+            } else {
+                prefixes.addAll(TaskIndex.words(term));
+            }
+        }
+        return new TaskQuery(prefixes, fromDay, toDay, completed);
+    }
+
+    /**
+     * Check if the query has nothing to filter on
+     * @return true if every task matches
+     */
+    public boolean isEmpty() {
+        return prefixes.isEmpty() && fromDay == Integer.MIN_VALUE
+                && toDay == Integer.MAX_VALUE && completed == null;
+    }
+
+    /**
+     * Get word prefixes that must all match
+     * @return lower case prefixes
+     */
+    public List<String> getPrefixes() {
+        return prefixes;
+    }
+
+    /**
+     * Get first due date to match
+     * @return epoch day, Integer.MIN_VALUE for none
+     */
+    public int getFromDay() {
+        return fromDay;
+    }
+
+    /**
+     * Get last due date to match
+     * @return epoch day, Integer.MAX_VALUE for none
+     */
+    public int getToDay() {
+        return toDay;
+    }
+
+    /**
+     * Get completion to match
+     * @return completion, or null for either
+     */
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    /**
+     * Check a row's date and completion against the query, not its words
+     * @param store holding the row
+     * @param id of the row
+     * @return true if the row passes the filters
+     */
+    boolean matchesFilters(TaskStore store, int id) {
+        int day = store.epochDay(id);
+        return day >= fromDay && day <= toDay
+                && (completed == null || store.isCompleted(id) == completed);
+    }
+
+    private static int parseDay(String date) {
+        try {
+            return Math.toIntExact(LocalDate.parse(date).toEpochDay());
+        } catch (DateTimeParseException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid date " + date + ", use yyyy-MM-dd", e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import javafx.beans.value.ChangeListener;
+import javafx.css.PseudoClass;
+import javafx.scene.control.TableRow;
+
+import java.util.function.Function;
+
+/**
+ * Table row styled by its task: completed, overdue or due today
+ * The states are CSS pseudo-classes set from Todolist.css, the due status
+ * comes from the service's DueReminders, so styling a row is a lookup.
+ * Each recycled row keeps one listener that it moves to the task it
+ * shows, so a checkbox or edit restyles just that row
+ */
+public class TaskRow extends TableRow<Task> {
+
+    private static final PseudoClass COMPLETED = PseudoClass.getPseudoClass("completed");
+    private static final PseudoClass OVERDUE = PseudoClass.getPseudoClass("overdue");
+    private static final PseudoClass DUE_TODAY = PseudoClass.getPseudoClass("due-today");
+
+    private final Function<Task, DueReminders.Status> status;
+    private final ChangeListener<Object> taskListener = (obs, oldValue, newValue) -> restyle();
+    private Task watched;
+
+    /**
+     * 1-param constructor
+     * @param status where a task's due date stands, e.g. TaskService::dueStatus
+     */
+    public TaskRow(Function<Task, DueReminders.Status> status) {
+        this.status = status;
+    }
+
+    @Override
+    protected void updateItem(Task task, boolean empty) {
+        super.updateItem(task, empty);
+        watch(empty ? null : task);
+        restyle();
+    }
+
+    /**
+     * Moves the row's listener to the checkbox and display text of a task
+     * @param task to follow, or null for an empty row
+     */
+    private void watch(Task task) {
+        if (task == watched) {
+            return;
+        }
+        if (watched != null) {
+            watched.completedProperty().removeListener(taskListener);
+            watched.displayProperty().removeListener(taskListener);
+        }
+        watched = task;
+        if (task != null) {
+            task.completedProperty().addListener(taskListener);
+            // The display text changes with the date, which moves the due status
+            task.displayProperty().addListener(taskListener);
+        }
+    }
+
+    private void restyle() {
+        Task task = watched;
+        DueReminders.Status due = task == null ? DueReminders.Status.NONE : status.apply(task);
+        pseudoClassStateChanged(COMPLETED, task != null && task.isCompleted());
+        pseudoClassStateChanged(OVERDUE, due == DueReminders.Status.OVERDUE);
+        pseudoClassStateChanged(DUE_TODAY, due == DueReminders.Status.DUE_TODAY);
+    }
+}
@@ -0,0 +1,1013 @@
+import javafx.collections.ListChangeListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Headless core of the task manager
+ * Owns the task list, its undo history, the search index and the file the
+ * list is saved to, and never touches the UI, so it runs as well from a
+ * batch job as behind the JavaFX controllers.
+ * Lists switched away from are kept in a Workspace, so opening one again
+ * is instant unless its file changed on disk. Once watchFiles is called,
+ * changes other programs make to the open file are merged into the list.
+ * Open tasks are kept bucketed by due date in DueReminders, so overdue and
+ * due today counts follow every change without going over the list, and
+ * TaskStats keeps the counts of the statistics panel the same way.
+ * Safe to call from any thread: changes hold a write lock and reads a read
+ * lock, so readers run together and only wait while a change is applied.
+ * Listeners of getTasks() are called on the changing thread with the write
+ * lock held, so a list shown by JavaFX must only be changed from the FX
+ * thread, and setters called on its Task views (as the table's checkboxes
+ * do) are confined to that thread too
+ */
+public class TaskService {
+
+    private static final Metrics.Gauge TASK_COUNT = Metrics.gauge("tasks");
+    // How often the clock is checked for a new day, so a sleep or clock change is caught too
+    private static final long CLOCK_CHECK_SECONDS = 60;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TaskList tasks = new TaskList();
+    private final UndoManager undoManager = new UndoManager();
+    private final SaveScheduler saveScheduler;
+    private final Consumer<String> onError;
+    private final Workspace workspace;
+    private TaskStore.CompletionListener onCompletionChanged = (task, oldValue, newValue) -> { };
+    private TaskIndex index = new TaskIndex(tasks.getStore());
+    private final DueReminders reminders = new DueReminders(tasks.getStore(), today());
+    private final TaskStats stats = new TaskStats(tasks, today());
+    private TaskJournal journal;
+    private boolean journaling = false;
+    private File file;
+    private FileLoad loading;
+    private Executor watchApply;
+    private Consumer<File> onConflict;
+    private FileWatcher watcher;
+    // The file as changed on disk, waiting on reloadFromDisk or keepLocal
+    private TaskStore external;
+    private FileWatcher.Version externalVersion;
+    // Nesting of holdingSaves and whether a save was asked for inside it, under the write lock
+    private int savesHeld;
+    private boolean saveWanted;
+    private volatile Executor reminderApply;
+    private volatile Consumer<DueReminders.Summary> onReminder;
+    private ScheduledExecutorService clock;
+
+    /**
+     * 2-param constructor, keeps switched away lists within the default budget
+     * @param onError reports failures that happen outside a call, e.g. a background save, on any thread
+     * @param saveDelayMillis quiet period before changes are written
+     */
+    public TaskService(Consumer<String> onError, long saveDelayMillis) {
+        this(onError, saveDelayMillis, new Workspace());
+    }
+
+    /**
+     * 3-param constructor
+     * @param onError reports failures that happen outside a call, e.g. a background save, on any thread
+     * @param saveDelayMillis quiet period before changes are written
+     * @param workspace keeping lists switched away from
+     */
+    public TaskService(Consumer<String> onError, long saveDelayMillis, Workspace workspace) {
+        this.onError = onError;
+        this.workspace = workspace;
+        // Snapshots are taken under the read lock, so the save thread can capture them itself
+        this.saveScheduler = new SaveScheduler(Runnable::run, this::captureSave,
+                e -> onError.accept("Failed to save tasks"), saveDelayMillis);
+        undoManager.setBatch(tasks::batch);
+        tasks.setOnCompletionChanged(this::completionChanged);
+        // A checkbox clicked in the table changes the list like any other write
+        tasks.setCompletionWrites(this::write);
+        tasks.addListener(this::listChanged);
+        tasks.addListener(stats);
+    }
+
+    /**
+     * Get the observable list of tasks, for display
+     * @return task list
+     */
+    public TaskList getTasks() {
+        return tasks;
+    }
+
+    /**
+     * Get the file the list is saved to
+     * @return current file, or null if none is open
+     */
+    public File getFile() {
+        return read(() -> file);
+    }
+
+    /**
+     * Get the lists kept in memory besides the open one
+     * @return workspace
+     */
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /**
+     * Get number of tasks in the list
+     * @return list size
+     */
+    public int size() {
+        return read(tasks::size);
+    }
+
+    /**
+     * Set listener for checkbox changes, called after they are backed up and saved
+     * @param listener to call
+     */
+    public void setOnCompletionChanged(TaskStore.CompletionListener listener) {
+        this.onCompletionChanged = listener;
+    }
+
+    /**
+     * Runs a read-only query on the list while holding the read lock
+     * @param query reading the list
+     * @param <T> result type
+     * @return query result
+     */
+    public <T> T read(Supplier<T> query) {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return query.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Runs changes to the list while holding the write lock
+     * Wrap several adds and removes in getTasks().batch to fire them as one change
+     * @param changes to run
+     */
+    public void write(Runnable changes) {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            changes.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Follows changes other programs make to the open file, and to every file opened after
+     * A change is diffed against the list and applied as one list change.
+     * If the list has edits not yet in the file, nothing is applied and
+     * onConflict is asked to settle it with reloadFromDisk or keepLocal
+     * @param apply executor changes are merged in on, Platform::runLater for a list on screen
+     * @param onConflict given the changed file, on the apply executor
+     */
+    public void watchFiles(Executor apply, Consumer<File> onConflict) {
+        write(() -> {
+            this.watchApply = apply;
+            this.onConflict = onConflict;
+            watch(file);
+        });
+    }
+
+    /**
+     * Reports overdue and due today tasks whenever a list is opened and
+     * whenever the day rolls over, starting with the list open now
+     * @param apply executor reminders are given on, Platform::runLater for a list on screen
+     * @param onReminder given the counts for today, on the apply executor
+     */
+    public void remindDue(Executor apply, Consumer<DueReminders.Summary> onReminder) {
+        write(() -> {
+            this.reminderApply = apply;
+            this.onReminder = onReminder;
+            if (clock == null) {
+                clock = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "due-reminders");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                clock.scheduleAtFixedRate(this::checkDay, CLOCK_CHECK_SECONDS, CLOCK_CHECK_SECONDS,
+                        TimeUnit.SECONDS);
+            }
+        });
+        remind(read(reminders::summary));
+    }
+
+    /**
+     * Get where a task's due date stands, to highlight it
+     * @param task in the list
+     * @return OVERDUE or DUE_TODAY for open tasks due by today, else NONE
+     */
+    public DueReminders.Status dueStatus(Task task) {
+        return read(() -> task.getStore() == tasks.getStore() ? reminders.status(task.getId())
+                : DueReminders.Status.NONE);
+    }
+
+    /**
+     * Get the live counts of the list
+     * Changed along with the list, so only read them inside read()
+     * @return statistics of the open list
+     */
+    public TaskStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Get the overdue and due today counts as they are now
+     * @return counts for today
+     */
+    public DueReminders.Summary dueSummary() {
+        return read(reminders::summary);
+    }
+
+    /**
+     * Settles a conflict by taking the file as it is on disk, dropping unsaved edits
+     */
+    public void reloadFromDisk() {
+        write(() -> {
+            if (external != null) {
+                applyExternal(external, externalVersion);
+            }
+        });
+    }
+
+    /**
+     * Settles a conflict by keeping the list, writing it over the file's outside changes
+     */
+    public void keepLocal() {
+        write(() -> {
+            if (external != null && watcher != null) {
+                watcher.accept(externalVersion);
+            }
+            external = null;
+        });
+        saveScheduler.requestSave();
+    }
+
+    /**
+     * Opens a task file, replacing the list
+     * The file is parsed before taking the lock, so readers aren't held up
+     * by it, unless the workspace still has it unchanged
+     * @param file to open
+     * @return number of lines skipped because they couldn't be parsed
+     * @throws IOException if issue with the file, the list is then left empty
+     */
+    public int open(File file) throws IOException {
+        cancelLoad();
+        saveScheduler.flush();
+        TaskStore kept = switchTo(file);
+        if (kept != null) {
+            swapIn(file, kept);
+            return 0;
+        }
+        TaskStore loaded = new TaskStore();
+        int skipped;
+        try {
+            skipped = FileUtilities.load(file, loaded);
+        } catch (IOException e) {
+            write(() -> {
+                closeJournal();
+                this.file = null;
+                watch(null);
+                tasks.clear();
+                undoManager.clear();
+            });
+            saveScheduler.markClean();
+            throw e;
+        }
+        loaded.sort();
+        swapIn(file, loaded);
+        return skipped;
+    }
+
+    /**
+     * Opens a task file in the background, replacing the list
+     * The list is emptied right away and fills in batches as the file is read.
+     * Nothing is saved until the whole file is in, then edits made while it
+     * was loading are saved; a cancelled or failed load leaves the list
+     * empty with no file open.
+     * A list the workspace still has unchanged is swapped in right away
+     * @param file to open
+     * @param apply executor batches are merged in on, Platform::runLater for a list on screen
+     * @param onProgress given the share of the file read so far, on the apply executor
+     * @return the running load, to follow or cancel
+     */
+    public FileLoad openAsync(File file, Executor apply, DoubleConsumer onProgress) {
+        cancelLoad();
+        saveScheduler.flush();
+        TaskStore kept = switchTo(file);
+        if (kept != null) {
+            swapIn(file, kept);
+            return FileLoad.loaded(file, apply);
+        }
+        TaskStore store = new TaskStore();
+        write(() -> {
+            closeJournal();
+            this.file = null;
+            watch(null);
+            index = new TaskIndex(store);
+            tasks.setStore(store);
+            undoManager.clear();
+        });
+        FileLoad load = new FileLoad(file, apply,
+                batch -> write(() -> {
+                    if (tasks.getStore() == store) {
+                        tasks.addRowsSorted(store.copyRows(batch));
+                    }
+                }),
+                onProgress,
+                (skipped, error) -> {
+                    boolean[] opened = new boolean[1];
+                    write(() -> {
+                        if (tasks.getStore() != store) {
+                            return;
+                        }
+                        loading = null;
+                        // Loading pushes no undo steps onto the history cleared above, so any are edits made meanwhile
+                        boolean edited = undoManager.getHistorySize() > 0;
+                        if (error == null) {
+                            this.file = file;
+                            watch(file);
+                            opened[0] = true;
+                        } else {
+                            tasks.clear();
+                            undoManager.clear();
+                        }
+                        // Saves asked for while no file was open went nowhere, so edits are saved now
+                        if (opened[0] && edited) {
+                            saveScheduler.requestSave();
+                        } else {
+                            saveScheduler.markClean();
+                        }
+                    });
+                    if (opened[0]) {
+                        write(this::openJournalIfNeeded);
+                        remind(read(reminders::summary));
+                    }
+                });
+        write(() -> loading = load);
+        load.start();
+        return load;
+    }
+
+    /**
+     * Saves the list to a new file from now on
+     * @param file to save to
+     */
+    public void saveAs(File file) {
+        workspace.remove(file);
+        write(() -> {
+            closeJournal();
+            this.file = file;
+            watch(file);
+        });
+        saveScheduler.requestSave();
+        if (isJournaling()) {
+            saveScheduler.flush();
+            write(this::openJournal);
+        }
+    }
+
+    /**
+     * Closes the current file, leaving an empty list
+     */
+    public void close() {
+        cancelLoad();
+        saveScheduler.flush();
+        write(() -> {
+            closeJournal();
+            file = null;
+            watch(null);
+            tasks.clear();
+            undoManager.clear();
+        });
+        saveScheduler.markClean();
+    }
+
+    /**
+     * Writes pending changes and stops saving, for when the app exits
+     */
+    public void shutdown() {
+        saveScheduler.flush();
+        saveScheduler.shutdown();
+        write(() -> {
+            closeJournal();
+            watch(null);
+            if (clock != null) {
+                clock.shutdownNow();
+                clock = null;
+            }
+        });
+    }
+
+    /**
+     * Check if edits are appended to a journal instead of rewriting the file
+     * @return true in journal mode
+     */
+    public boolean isJournaling() {
+        return read(() -> journaling);
+    }
+
+    /**
+     * Turns journal saving on or off for the current file
+     * Turning it off folds the journal into a full save, then removes it
+     * @param on true for journal saving
+     */
+    public void setJournaling(boolean on) {
+        if (on) {
+            saveScheduler.flush();
+            write(() -> {
+                journaling = true;
+                if (file != null && journal == null) {
+                    openJournal();
+                }
+            });
+        } else {
+            TaskJournal[] old = new TaskJournal[1];
+            write(() -> {
+                journaling = false;
+                old[0] = journal;
+                journal = null;
+            });
+            if (old[0] != null) {
+                saveScheduler.requestSave();
+                saveScheduler.flush();
+                try {
+                    old[0].delete();
+                } catch (IOException e) {
+                    onError.accept("Failed to remove journal");
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a task where it belongs in the list
+     * @param text description
+     * @param date due
+     * @return the new task
+     */
+    public Task add(String text, LocalDate date) {
+        Task task = new Task(text, date);
+        write(() -> {
+            undoManager.push(new Action(
+                    () -> tasks.remove(task),
+                    () -> tasks.addSorted(task)
+            ));
+            tasks.addSorted(task);
+        });
+        return task;
+    }
+
+    /**
+     * Removes a task from the list
+     * @param task to remove
+     */
+    public void delete(Task task) {
+        write(() -> {
+            if (tasks.contains(task)) {
+                undoManager.push(new Action(
+                        () -> tasks.addSorted(task),
+                        () -> tasks.remove(task)
+                ));
+                tasks.remove(task);
+            }
+        });
+    }
+
+    /**
+     * Removes several tasks as one undoable change
+     * @param selected tasks to remove, ones no longer in the list are skipped
+     */
+    public void delete(List<Task> selected) {
+        List<Task> removing = List.copyOf(selected);
+        compound(() -> removing.forEach(this::delete));
+    }
+
+    /**
+     * Runs several changes as one undo step
+     * Listeners see their adds and removes as one list change and one save
+     * is asked for, and undoing or redoing the step does the same
+     * @param changes calling this service, e.g. several deletes
+     */
+    public void compound(Runnable changes) {
+        write(() -> holdingSaves(() -> tasks.batch(() -> undoManager.compound(changes))));
+    }
+
+    /**
+     * Changes a task's description and date, moving it to its sorted place
+     * A task no longer in the list, e.g. deleted or from a list since
+     * switched away from, is left alone
+     * @param task to change
+     * @param text new description
+     * @param date new date
+     */
+    public void edit(Task task, String text, LocalDate date) {
+        write(() -> {
+            if (!inList(task)) {
+                return;
+            }
+            String oldText = task.getTask();
+            LocalDate oldDate = task.getDate();
+            undoManager.push(new Action(
+                    () -> applyEdit(task, oldText, oldDate),
+                    () -> applyEdit(task, text, date)
+            ));
+            applyEdit(task, text, date);
+        });
+    }
+
+    /**
+     * Checks or unchecks a task, the same as its checkbox
+     * @param task to change
+     * @param value new completion
+     */
+    public void setCompleted(Task task, boolean value) {
+        write(() -> task.setCompleted(value));
+    }
+
+    /**
+     * Removes every completed task as one undoable change
+     * @return true if anything was removed
+     */
+    public boolean clearCompleted() {
+        boolean[] removed = new boolean[1];
+        write(() -> {
+            TaskStore store = tasks.getStore();
+            BitSet checked = store.positionsWhere(store::isCompleted);
+            if (!checked.isEmpty()) {
+                undoManager.push(new RemovalAction(tasks, tasks.idsAt(checked)));
+                removed[0] = tasks.removePositions(checked);
+            }
+        });
+        return removed[0];
+    }
+
+    /**
+     * Removes every task as one undoable change
+     * @return true if anything was removed
+     */
+    public boolean clearAll() {
+        boolean[] removed = new boolean[1];
+        write(() -> {
+            if (!tasks.isEmpty()) {
+                BitSet all = new BitSet();
+                all.set(0, tasks.size());
+                undoManager.push(new RemovalAction(tasks, tasks.idsAt(all)));
+                tasks.clear();
+                removed[0] = true;
+            }
+        });
+        return removed[0];
+    }
+
+    /**
+     * Undoes the last change
+     */
+    public void undo() {
+        write(() -> holdingSaves(() -> {
+            undoManager.undo();
+            save();
+        }));
+    }
+
+    /**
+     * Redoes the last undone change
+     */
+    public void redo() {
+        write(() -> holdingSaves(() -> {
+            undoManager.redo();
+            save();
+        }));
+    }
+
+    /**
+     * Finds the tasks matching a query
+     * @param query to match
+     * @return matching tasks, in list order
+     */
+    public List<Task> search(TaskQuery query) {
+        return read(() -> TaskList.views(tasks.getStore(), index.search(query)));
+    }
+
+    /**
+     * Copies the list for reading or saving without holding the lock
+     * @return detached copy
+     */
+    public TaskStore snapshot() {
+        return read(() -> tasks.getStore().snapshot());
+    }
+
+    /**
+     * Changes a task, reports the edit and moves it to its sorted place
+     */
+    private void applyEdit(Task task, String text, LocalDate date) {
+        if (!inList(task)) {
+            return;
+        }
+        String oldLine = task.serialize();
+        task.setTask(text);
+        task.setDate(date);
+        index.textChanged(task.getId());
+        reminders.update(task.getId());
+        stats.update(task.getId());
+        journal(j -> j.updated(oldLine, task));
+        tasks.reposition(task);
+        save();
+    }
+
+    /**
+     * Check if a task is a row of the open list that is in it right now
+     */
+    private boolean inList(Task task) {
+        TaskStore store = tasks.getStore();
+        return task.getStore() == store && store.isLive(task.getId());
+    }
+
+    /**
+     * Backs up, journals and saves a checkbox change on any task in the list
+     */
+    private void completionChanged(Task task, boolean oldValue, boolean newValue) {
+        reminders.update(task.getId());
+        stats.changed(task, oldValue, newValue);
+        if (!undoManager.isPerforming()) {
+            undoManager.push(new Action(
+                    () -> task.setCompleted(oldValue),
+                    () -> task.setCompleted(newValue)
+            ));
+        }
+        journal(j -> j.toggled(task, oldValue));
+        save();
+        onCompletionChanged.changed(task, oldValue, newValue);
+    }
+
+    /**
+     * Indexes, journals and saves adds and removes, and moves their due dates in or out of the reminders
+     */
+    private void listChanged(ListChangeListener.Change<? extends Task> change) {
+        // A new store or an emptied list is cheaper to track afresh than row by row
+        boolean swapped = reminders.getStore() != tasks.getStore() || tasks.isEmpty();
+        if (swapped) {
+            reminders.reset(tasks.getStore());
+        }
+        while (change.next()) {
+            if (!swapped && !change.wasPermutated()) {
+                if (change.wasRemoved()) {
+                    for (Task task : change.getRemoved()) {
+                        reminders.update(task.getId());
+                    }
+                }
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    reminders.update(tasks.getStore().idAt(i));
+                }
+            }
+            if (change.wasRemoved()) {
+                for (Task task : change.getRemoved()) {
+                    index.removed(task.getId());
+                    journal(j -> j.removed(task));
+                }
+            }
+            if (change.wasAdded()) {
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    index.added(tasks.getStore().idAt(i));
+                }
+                if (journal != null) {
+                    for (Task task : change.getAddedSubList()) {
+                        journal(j -> j.added(task));
+                    }
+                }
+            }
+        }
+        TASK_COUNT.set(tasks.size());
+        save();
+    }
+
+    /**
+     * Asks for the list to be saved, bursts of requests are written once
+     * In journal mode edits are already on disk, so this only compacts
+     */
+    private void save() {
+        if (savesHeld > 0) {
+            saveWanted = true;
+            return;
+        }
+        TaskJournal current = journal;
+        if (current == null || current.needsCompaction()) {
+            saveScheduler.requestSave();
+        }
+    }
+
+    /**
+     * Runs changes under the write lock, asking for one save at the end
+     * however many of them ask for one
+     * @param changes to run
+     */
+    private void holdingSaves(Runnable changes) {
+        savesHeld++;
+        try {
+            changes.run();
+        } finally {
+            if (--savesHeld == 0 && saveWanted) {
+                saveWanted = false;
+                save();
+            }
+        }
+    }
+
+    /**
+     * Snapshots the list for a background save, under the read lock
+     * @return job writing the snapshot, or null if no file is open or a conflict is pending
+     */
+    private SaveScheduler.Job captureSave() {
+        return read(() -> {
+            // Nothing is written over outside changes until the conflict is settled
+            if (file == null || external != null) {
+                return null;
+            }
+            File target = file;
+            TaskJournal compacting = journal;
+            try {
+                if (compacting != null && !compacting.checkpoint()) {
+                    return null;
+                }
+            } catch (IOException e) {
+                onError.accept("Failed to save tasks");
+                return null;
+            }
+            TaskStore snapshot = tasks.getStore().snapshot();
+            FileWatcher watching = watcher;
+            return () -> {
+                try {
+                    if (watching != null && watching.getFile().equals(target)) {
+                        if (!watching.write(() -> FileUtilities.save(target, snapshot))) {
+                            // Someone else changed the file, stay dirty until the watcher settles it
+                            saveScheduler.requestSave();
+                        }
+                    } else {
+                        FileUtilities.save(target, snapshot);
+                    }
+                } catch (IOException e) {
+                    if (compacting != null) {
+                        compacting.cancelCheckpoint();
+                    }
+                    throw e;
+                }
+                if (compacting != null) {
+                    compacting.compact();
+                }
+            };
+        });
+    }
+
+    /**
+     * Puts the open list away in the workspace and takes out the next one
+     * Called after flushing, so the kept copy matches the version of its
+     * file the save left behind; an edit slipping in before the swap is
+     * saved too and so changes the file. A list with outside changes
+     * waiting to be settled doesn't match its file and isn't kept
+     * @param next file about to be opened
+     * @return the workspace's list for it, or null if it must be read
+     */
+    private TaskStore switchTo(File next) {
+        write(() -> {
+            if (file != null && loading == null && external == null) {
+                TaskStore kept = tasks.getStore().snapshot();
+                kept.trimToSize();
+                // Watching, the save already recorded the version, otherwise it's one stat
+                FileWatcher.Version version = watcher != null ? watcher.getVersion() : FileWatcher.Version.of(file);
+                workspace.put(file, kept, version);
+            }
+        });
+        return workspace.take(next);
+    }
+
+    /**
+     * Replaces the list with a sorted one that matches its file
+     * @param file the list was read from
+     * @param store sorted list
+     */
+    private void swapIn(File file, TaskStore store) {
+        TaskIndex storeIndex = new TaskIndex(store);
+        write(() -> {
+            closeJournal();
+            index = storeIndex;
+            tasks.setStore(store);
+            undoManager.clear();
+            this.file = file;
+            watch(file);
+        });
+        // Only once the swap has been fired, so the loaded tasks aren't journaled as adds
+        write(this::openJournalIfNeeded);
+        // The list matches the file, nothing to write back
+        saveScheduler.markClean();
+        remind(read(reminders::summary));
+    }
+
+    /**
+     * Moves the reminders to a new day once the clock passes midnight, on the clock thread
+     */
+    private void checkDay() {
+        DueReminders.Summary[] summary = new DueReminders.Summary[1];
+        write(() -> {
+            int today = today();
+            summary[0] = reminders.advanceTo(today);
+            stats.setToday(today);
+        });
+        if (summary[0] != null) {
+            remind(summary[0]);
+        }
+    }
+
+    /**
+     * Hands reminder counts to the listener, once remindDue was called
+     * @param summary counts to give
+     */
+    private void remind(DueReminders.Summary summary) {
+        Executor apply = reminderApply;
+        Consumer<DueReminders.Summary> listener = onReminder;
+        if (apply != null && listener != null) {
+            apply.execute(() -> listener.accept(summary));
+        }
+    }
+
+    /**
+     * Get today in the system time zone
+     * @return epoch day
+     */
+    private static int today() {
+        return (int) LocalDate.now().toEpochDay();
+    }
+
+    /**
+     * Watches a newly opened file for outside changes, once watchFiles was called
+     * @param next file now open, or null to stop watching
+     */
+    private void watch(File next) {
+        external = null;
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // the watcher thread stops either way
+            }
+            watcher = null;
+        }
+        if (next != null && watchApply != null) {
+            try {
+                watcher = new FileWatcher(next, () -> fileChanged(next));
+                watcher.start();
+            } catch (IOException e) {
+                onError.accept("Changes other programs make to " + next.getName() + " won't be noticed");
+            }
+        }
+    }
+
+    /**
+     * Reads a file another program changed, on the watcher thread, then
+     * merges it in on the apply executor
+     */
+    private void fileChanged(File changed) {
+        FileWatcher.Version version = FileWatcher.Version.of(changed);
+        TaskStore disk = new TaskStore();
+        try {
+            FileUtilities.load(changed, disk);
+        } catch (IOException e) {
+            onError.accept("Failed to read " + changed.getName() + " after it changed");
+            return;
+        }
+        disk.sort();
+        watchApply.execute(() -> {
+            boolean[] conflict = new boolean[1];
+            write(() -> {
+                if (!changed.equals(file) || loading != null) {
+                    return;
+                }
+                if (saveScheduler.isDirty() || (journal != null && journal.hasRecords())) {
+                    external = disk;
+                    externalVersion = version;
+                    conflict[0] = true;
+                } else {
+                    applyExternal(disk, version);
+                }
+            });
+            if (conflict[0]) {
+                onConflict.accept(changed);
+            }
+        });
+    }
+
+    /**
+     * Turns the list into the file's new contents with one list change
+     * Undo history is cleared, it may point at tasks that are gone, and a
+     * journal is started over since it was kept against the old contents
+     * @param disk file as it is now, sorted
+     * @param version of the file disk was read from
+     */
+    private void applyExternal(TaskStore disk, FileWatcher.Version version) {
+        external = null;
+        if (watcher != null) {
+            watcher.accept(version);
+        }
+        TaskDiff diff = TaskDiff.between(tasks.getStore(), disk);
+        if (diff.isEmpty()) {
+            return;
+        }
+        if (journal != null) {
+            try {
+                journal.delete();
+            } catch (IOException e) {
+                onError.accept("Failed to remove journal");
+            }
+            journal = null;
+        }
+        tasks.batch(() -> {
+            tasks.removePositions(diff.getRemoved());
+            tasks.addRowsSorted(tasks.getStore().copyRows(diff.getAdded()));
+        });
+        undoManager.clear();
+        if (journaling) {
+            openJournal();
+        }
+        // The list matches the file, nothing to write back
+        saveScheduler.markClean();
+    }
+
+    /**
+     * Cancels a background open that is still running
+     */
+    private void cancelLoad() {
+        FileLoad running = read(() -> loading);
+        if (running != null) {
+            running.cancel();
+        }
+    }
+
+    /**
+     * Opens the journal of a newly opened file in journal mode, or if it has one
+     */
+    private void openJournalIfNeeded() {
+        if (file != null && (journaling || TaskJournal.exists(file))) {
+            journaling = true;
+            openJournal();
+        }
+    }
+
+    /**
+     * Opens the journal of the current file, switching to journal saving
+     */
+    private void openJournal() {
+        try {
+            journal = TaskJournal.open(file);
+        } catch (IOException e) {
+            journaling = false;
+            onError.accept("Failed to open journal");
+        }
+    }
+
+    /**
+     * Closes the journal of the current file, keeping it on disk
+     */
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                onError.accept("Failed to save tasks");
+            }
+            journal = null;
+        }
+    }
+
+    /**
+     * Appends an edit to the journal, if journal saving is on
+     * @param record appending the edit
+     */
+    private void journal(JournalRecord record) {
+        if (journal != null) {
+            try {
+                record.write(journal);
+            } catch (IOException e) {
+                onError.accept("Failed to save tasks");
+            }
+        }
+    }
+
+    /**
+     * An edit to append to the journal
+     */
+    private interface JournalRecord {
+        void write(TaskJournal journal) throws IOException;
+    }
+}
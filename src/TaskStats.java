@@ -0,0 +1,256 @@
+import javafx.collections.ListChangeListener;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Live counts over a task list: total, completed, overdue, due this week
+ * and tasks per day
+ * Tasks are counted into two per-day histograms, every task and open
+ * tasks only, each backed by a Fenwick tree over the range of dates seen,
+ * so a change moves one row in O(log days) and any count over a range of
+ * days is two prefix sums. Each row's counted date and completion are kept,
+ * so an edit takes back exactly what the row added before.
+ * Follows the list as a ListChangeListener and its checkboxes as a
+ * CompletionListener; date edits fire neither, so update is called for them
+ */
+public class TaskStats implements ListChangeListener<Task>, TaskStore.CompletionListener {
+
+    public static final int WEEK_DAYS = 7;
+
+    // Counted date of each row id, or UNTRACKED for rows not in the list
+    private static final int UNTRACKED = Integer.MIN_VALUE;
+    private int[] day = new int[0];
+    private final BitSet done = new BitSet();
+
+    private final TaskList tasks;
+    private final DayCounts all = new DayCounts();
+    private final DayCounts open = new DayCounts();
+    private TaskStore store;
+    private int today;
+
+    /**
+     * 2-param constructor, counts the list as it is now
+     * @param tasks list to count, add this as its listener
+     * @param today epoch day overdue and due this week count from
+     */
+    public TaskStats(TaskList tasks, int today) {
+        this.tasks = tasks;
+        this.today = today;
+        reset();
+    }
+
+    /**
+     * Counts the list afresh, for a list swapped in or after a consistency check failed
+     */
+    public void reset() {
+        store = tasks.getStore();
+        Arrays.fill(day, UNTRACKED);
+        done.clear();
+        all.clear();
+        open.clear();
+        for (int i = 0; i < store.size(); i++) {
+            update(store.idAt(i));
+        }
+    }
+
+    @Override
+    public void onChanged(Change<? extends Task> change) {
+        // A new store or an emptied list is cheaper to count afresh than row by row
+        if (store != tasks.getStore() || tasks.isEmpty()) {
+            reset();
+            return;
+        }
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                continue;
+            }
+            if (change.wasRemoved()) {
+                for (Task task : change.getRemoved()) {
+                    update(task.getId());
+                }
+            }
+            for (int i = change.getFrom(); i < change.getTo(); i++) {
+                update(store.idAt(i));
+            }
+        }
+    }
+
+    @Override
+    public void changed(Task task, boolean oldValue, boolean newValue) {
+        if (task.getStore() == store) {
+            update(task.getId());
+        }
+    }
+
+    /**
+     * Recounts one row, after its date changed or it left or joined the list
+     * @param id of the row
+     */
+    public void update(int id) {
+        if (id >= day.length) {
+            int old = day.length;
+            day = Arrays.copyOf(day, Math.max(id + 1, Math.max(16, old * 2)));
+            Arrays.fill(day, old, day.length, UNTRACKED);
+        }
+        if (day[id] != UNTRACKED) {
+            all.add(day[id], -1);
+            if (!done.get(id)) {
+                open.add(day[id], -1);
+            }
+            day[id] = UNTRACKED;
+        }
+        if (store.isLive(id)) {
+            int epochDay = store.epochDay(id);
+            boolean completed = store.isCompleted(id);
+            all.add(epochDay, 1);
+            if (!completed) {
+                open.add(epochDay, 1);
+            }
+            day[id] = epochDay;
+            done.set(id, completed);
+        }
+    }
+
+    /**
+     * Moves the day overdue and due this week count from
+     * @param epochDay today
+     */
+    public void setToday(int epochDay) {
+        today = epochDay;
+    }
+
+    /**
+     * @return today as an epoch day
+     */
+    public int getToday() {
+        return today;
+    }
+
+    /**
+     * @return tasks in the list
+     */
+    public int getTotal() {
+        return all.total;
+    }
+
+    /**
+     * @return checked tasks
+     */
+    public int getCompleted() {
+        return all.total - open.total;
+    }
+
+    /**
+     * @return open tasks due before today
+     */
+    public int getOverdue() {
+        return open.countBelow(today);
+    }
+
+    /**
+     * @return open tasks due from today through the next WEEK_DAYS - 1 days
+     */
+    public int getDueThisWeek() {
+        return open.countBelow(today + WEEK_DAYS) - open.countBelow(today);
+    }
+
+    /**
+     * Get tasks per day over a range of dates
+     * @param fromDay first epoch day
+     * @param toDay last epoch day, inclusive
+     * @param openOnly true to count only open tasks
+     * @return count for each day of the range
+     */
+    public int[] histogram(int fromDay, int toDay, boolean openOnly) {
+        DayCounts counts = openOnly ? open : all;
+        int[] histogram = new int[Math.max(0, toDay - fromDay + 1)];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = counts.count(fromDay + i);
+        }
+        return histogram;
+    }
+
+    /**
+     * Per-day counts with a Fenwick tree for sums over days
+     * Covers a window of days that doubles to take in any new date, so
+     * growing costs amortized constant time per date
+     */
+    private static final class DayCounts {
+        private static final int MIN_LENGTH = 64;
+
+        private int base;
+        private int[] counts = new int[0];
+        // Fenwick tree over counts, 1-indexed
+        private int[] tree = new int[1];
+        private int total;
+
+        private void clear() {
+            counts = new int[0];
+            tree = new int[1];
+            total = 0;
+        }
+
+        private void add(int epochDay, int delta) {
+            cover(epochDay);
+            counts[epochDay - base] += delta;
+            for (int i = epochDay - base + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+            total += delta;
+        }
+
+        private int count(int epochDay) {
+            long index = (long) epochDay - base;
+            return index < 0 || index >= counts.length ? 0 : counts[(int) index];
+        }
+
+        /**
+         * @return count of the days before epochDay
+         */
+        private int countBelow(int epochDay) {
+            long end = (long) epochDay - base;
+            if (end <= 0) {
+                return 0;
+            } else if (end >= counts.length) {
+                return total;
+            }
+            int sum = 0;
+            for (int i = (int) end; i > 0; i -= i & -i) {
+                sum += tree[i];
+            }
+            return sum;
+        }
+
+        private void cover(int epochDay) {
+            if (counts.length == 0) {
+                // Start centred on the first date, most lists sit around today
+                base = epochDay - MIN_LENGTH / 2;
+                counts = new int[MIN_LENGTH];
+                tree = new int[MIN_LENGTH + 1];
+                return;
+            }
+            if (epochDay >= base && epochDay - base < counts.length) {
+                return;
+            }
+            long low = Math.min(base, epochDay);
+            long high = Math.max((long) base + counts.length, epochDay + 1L);
+            int length = (int) Math.max(high - low, 2L * counts.length);
+            // Grow toward the side the new date is on
+            int newBase = (int) (epochDay < base ? high - length : low);
+            int[] grown = new int[length];
+            System.arraycopy(counts, 0, grown, base - newBase, counts.length);
+            base = newBase;
+            counts = grown;
+            // Linear Fenwick build
+            tree = new int[length + 1];
+            for (int i = 1; i <= length; i++) {
+                tree[i] += counts[i - 1];
+                int parent = i + (i & -i);
+                if (parent <= length) {
+                    tree[parent] += tree[i];
+                }
+            }
+        }
+    }
+}
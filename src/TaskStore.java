@@ -0,0 +1,963 @@
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+
+/**
+ * Column store holding the values of every task in a list
+ * Each task is a row id whose values sit in parallel primitive arrays,
+ * and the list order is an int array of row ids. Descriptions are kept
+ * UTF-8 encoded in one byte arena, each prefixed by its length, so a row
+ * costs a few ints plus its text. Task objects are only built as views of
+ * the rows something is actually looking at, and are dropped again once
+ * nothing holds them
+ */
+public class TaskStore {
+
+    /**
+     * Called when a task's checkbox changes through its view
+     */
+    public interface CompletionListener {
+        /**
+         * @param task whose completion changed
+         * @param oldValue completion before
+         * @param newValue completion after
+         */
+        void changed(Task task, boolean oldValue, boolean newValue);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_ARENA = Integer.MAX_VALUE - 8;
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+    private static final Metrics.Histogram SORT_TIME = Metrics.histogram("sort");
+
+    // Columns, indexed by row id
+    private int[] days = new int[INITIAL_CAPACITY];
+    private long[] completed = new long[1];
+    private int[] textStarts = new int[INITIAL_CAPACITY];
+    private WeakReference<Task>[] views = newViews(INITIAL_CAPACITY);
+    private final BitSet live = new BitSet();
+    private int rows;
+
+    // Length-prefixed UTF-8 descriptions, edits append and leave the old bytes behind
+    private byte[] arena = new byte[INITIAL_CAPACITY * 32];
+    private int arenaSize;
+    private int garbage;
+    // Set on snapshots, which read the arena of the store they came from
+    private boolean arenaShared;
+
+    // Row ids in list order
+    private int[] order = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private CompletionListener completionListener;
+    private Consumer<Runnable> completionWrites = Runnable::run;
+
+    /**
+     * Get number of tasks in the list
+     * @return list size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the row at a list position
+     * @param position in the list
+     * @return row id
+     */
+    public int idAt(int position) {
+        checkPosition(position, size);
+        return order[position];
+    }
+
+    /**
+     * Copies the row ids in list order
+     * @return row ids
+     */
+    public int[] ids() {
+        return Arrays.copyOf(order, size);
+    }
+
+    /**
+     * Finds the list position of a row
+     * @param id of the row
+     * @return position, or -1 if the row isn't in the list
+     */
+    public int indexOf(int id) {
+        if (!isLive(id)) {
+            return -1;
+        }
+        for (int i = 0; i < size; i++) {
+            if (order[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if a row is currently in the list
+     * Removed rows keep their values, so undo can put them back
+     * @param id of the row
+     * @return true if the row is in the list
+     */
+    public boolean isLive(int id) {
+        return live.get(id);
+    }
+
+    /**
+     * Get a row's description
+     * @param id of the row
+     * @return description
+     */
+    public String text(int id) {
+        int start = textOffset(id);
+        return new String(arena, start, textLength(id), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get a row's due date
+     * @param id of the row
+     * @return due date as an epoch day
+     */
+    public int epochDay(int id) {
+        return days[checkId(id)];
+    }
+
+    /**
+     * Get a row's completion
+     * @param id of the row
+     * @return completed value
+     */
+    public boolean isCompleted(int id) {
+        checkId(id);
+        return (completed[id >>> 6] & (1L << id)) != 0;
+    }
+
+    /**
+     * Set a row's description
+     * @param id of the row
+     * @param text new description
+     */
+    public void setText(int id, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int length = textLength(id);
+        if (length == bytes.length
+                && Arrays.equals(arena, textOffset(id), textOffset(id) + length, bytes, 0, length)) {
+            return;
+        }
+        int start = appendText(bytes, 0, bytes.length);
+        garbage += entrySize(length);
+        textStarts[id] = start;
+        displayChanged(id);
+    }
+
+    /**
+     * Set a row's due date
+     * @param id of the row
+     * @param epochDay new due date
+     */
+    public void setEpochDay(int id, int epochDay) {
+        if (days[checkId(id)] != epochDay) {
+            days[id] = epochDay;
+            displayChanged(id);
+        }
+    }
+
+    /**
+     * Set a row's completion without telling its view
+     * Only for stores nothing is displaying, views go through Task.setCompleted
+     * @param id of the row
+     * @param value new completion
+     */
+    public void setCompleted(int id, boolean value) {
+        checkId(id);
+        if (value) {
+            completed[id >>> 6] |= 1L << id;
+        } else {
+            completed[id >>> 6] &= ~(1L << id);
+        }
+    }
+
+    /**
+     * Appends a new task to the end of the list
+     * @param text description
+     * @param epochDay due date
+     * @param value completion
+     */
+    public void add(String text, int epochDay, boolean value) {
+        insert(size, newRow(text, epochDay, value));
+    }
+
+    /**
+     * Appends a new task whose description is already UTF-8 encoded
+     * The bytes are copied straight into the arena, no String is built
+     * @param buf holding the description
+     * @param start of the description
+     * @param end after the description
+     * @param epochDay due date
+     * @param value completion
+     */
+    public void add(byte[] buf, int start, int end, int epochDay, boolean value) {
+        int id = newRow(epochDay, value);
+        textStarts[id] = appendText(buf, start, end - start);
+        insert(size, id);
+    }
+
+    /**
+     * Appends a new task whose description is read from a buffer
+     * @param buf holding the UTF-8 description
+     * @param index of the description
+     * @param length of the description in bytes
+     * @param epochDay due date
+     * @param value completion
+     */
+    void add(ByteBuffer buf, int index, int length, int epochDay, boolean value) {
+        int id = newRow(epochDay, value);
+        int start = reserveText(length);
+        buf.get(index, arena, arenaSize - length, length);
+        textStarts[id] = start;
+        insert(size, id);
+    }
+
+    /**
+     * Creates a row that isn't in the list yet
+     * @param text description
+     * @param epochDay due date
+     * @param value completion
+     * @return id of the new row
+     */
+    public int newRow(String text, int epochDay, boolean value) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int id = newRow(epochDay, value);
+        textStarts[id] = appendText(bytes, 0, bytes.length);
+        return id;
+    }
+
+    /**
+     * Copies the list of another store into new rows of this one, not yet in the list
+     * Descriptions are copied as bytes, without decoding
+     * @param from store to copy
+     * @return ids of the new rows, in from's list order
+     */
+    public int[] copyRows(TaskStore from) {
+        int[] ids = new int[from.size];
+        for (int i = 0; i < from.size; i++) {
+            int source = from.order[i];
+            int id = newRow(from.days[source], from.isCompleted(source));
+            textStarts[id] = appendText(from.arena, from.textOffset(source), from.textLength(source));
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private int newRow(int epochDay, boolean value) {
+        if (rows == days.length) {
+            resizeRows(days.length * 2);
+        }
+        int id = rows++;
+        days[id] = epochDay;
+        setCompleted(id, value);
+        return id;
+    }
+
+    /**
+     * Puts a row into the list
+     * @param position to insert at
+     * @param id of a row that isn't in the list
+     */
+    public void insert(int position, int id) {
+        insert(position, new int[] {id}, 1);
+    }
+
+    /**
+     * Puts several rows into the list at once
+     * @param position to insert at
+     * @param ids of rows that aren't in the list
+     * @param count number of ids to use
+     */
+    public void insert(int position, int[] ids, int count) {
+        checkPosition(position, size + 1);
+        markLive(ids, count);
+        ensureOrderCapacity(size + count);
+        System.arraycopy(order, position, order, position + count, size - position);
+        System.arraycopy(ids, 0, order, position, count);
+        size += count;
+    }
+
+    /**
+     * Finds where a row belongs in a list sorted by due date, then description
+     * Rows equal to it stay in front, so repeated inserts keep their order
+     * @param id of the row
+     * @return position to insert at
+     */
+    public int insertionPoint(int id) {
+        return upperBound(id, 0, size);
+    }
+
+    /**
+     * Finds the first position due on or after a day, in a sorted list
+     * @param epochDay due date
+     * @return position, or size if every row is due earlier
+     */
+    public int firstPositionFrom(int epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[order[middle]] < epochDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts row ids by due date, then description, the order of a sorted list
+     * @param ids row ids to sort in place
+     * @param count number of ids to sort
+     */
+    public void sortRows(int[] ids, int count) {
+        mergeSort(ids, new int[count], 0, count, this::compare);
+    }
+
+    /**
+     * Puts a row into a sorted list where it belongs, by binary search
+     * @param id of a row that isn't in the list
+     * @return position it went in at
+     */
+    public int insertSorted(int id) {
+        int position = insertionPoint(checkId(id));
+        insert(position, id);
+        return position;
+    }
+
+    /**
+     * Merges several rows into a sorted list in one pass
+     * @param ids of rows that aren't in the list, in any order
+     * @param count number of ids to use
+     * @return ascending positions the rows ended up at
+     */
+    public int[] insertSorted(int[] ids, int count) {
+        markLive(ids, count);
+        int[] added = Arrays.copyOf(ids, count);
+        sortRows(added, count);
+        int[] merged = new int[Math.max(INITIAL_CAPACITY, Math.max(order.length, size + count))];
+        int[] positions = new int[count];
+        // Gallop to each added row's place and copy the rows before it in one go,
+        // so a small batch into a long list costs a few compares per added row
+        int kept = 0;
+        int out = 0;
+        for (int next = 0; next < count; next++) {
+            int id = added[next];
+            int end = gallop(id, kept);
+            System.arraycopy(order, kept, merged, out, end - kept);
+            out += end - kept;
+            kept = end;
+            positions[next] = out;
+            merged[out++] = id;
+        }
+        System.arraycopy(order, kept, merged, out, size - kept);
+        order = merged;
+        size += count;
+        return positions;
+    }
+
+    /**
+     * Moves a row whose date or description changed back to its sorted place
+     * Only the rows between its old and new position shift
+     * @param position of the changed row
+     * @return its new position
+     */
+    public int reposition(int position) {
+        checkPosition(position, size);
+        int id = order[position];
+        int target;
+        if (position > 0 && compare(order[position - 1], id) > 0) {
+            target = upperBound(id, 0, position);
+            System.arraycopy(order, target, order, target + 1, position - target);
+        } else if (position < size - 1 && compare(id, order[position + 1]) > 0) {
+            target = upperBound(id, position + 1, size) - 1;
+            System.arraycopy(order, position + 1, order, position, target - position);
+        } else {
+            return position;
+        }
+        order[target] = id;
+        return target;
+    }
+
+    /**
+     * Takes a range of rows out of the list, keeping their values
+     * @param from first position
+     * @param to position after the last one
+     * @return ids of the removed rows
+     */
+    public int[] remove(int from, int to) {
+        checkPosition(from, size + 1);
+        checkPosition(to, size + 1);
+        int[] removed = Arrays.copyOfRange(order, from, to);
+        for (int id : removed) {
+            live.clear(id);
+        }
+        System.arraycopy(order, to, order, from, size - to);
+        size -= to - from;
+        return removed;
+    }
+
+    /**
+     * Takes every marked position out of the list in a single pass
+     * @param positions to remove
+     */
+    public void remove(BitSet positions) {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (positions.get(i)) {
+                live.clear(order[i]);
+            } else {
+                order[kept++] = order[i];
+            }
+        }
+        size = kept;
+    }
+
+    /**
+     * Replaces the row at a list position
+     * @param position in the list
+     * @param id of a row that isn't in the list
+     * @return id of the row that was there
+     */
+    public int set(int position, int id) {
+        checkPosition(position, size);
+        checkId(id);
+        int old = order[position];
+        live.clear(old);
+        if (live.get(id)) {
+            live.set(old);
+            throw new IllegalArgumentException("Row already in the list: " + id);
+        }
+        live.set(id);
+        order[position] = id;
+        return old;
+    }
+
+    /**
+     * Drops the descriptions of removed rows that nothing can put back
+     * The rows keep their ids, only their text is freed at the next compaction
+     * @param ids of the rows, ones still in the list are left alone
+     */
+    public void release(int[] ids) {
+        for (int id : ids) {
+            if (!isLive(id)) {
+                setText(id, "");
+                views[id] = null;
+            }
+        }
+    }
+
+    /**
+     * Get the view of a row, building it if nothing holds one
+     * The same view is handed out for as long as anything keeps it
+     * @param id of the row
+     * @return task backed by the row
+     */
+    public Task view(int id) {
+        checkId(id);
+        WeakReference<Task> ref = views[id];
+        Task task = ref == null ? null : ref.get();
+        if (task == null) {
+            task = new Task(this, id);
+            views[id] = new WeakReference<>(task);
+        }
+        return task;
+    }
+
+    /**
+     * Makes a task the view of a row, for a task that was just attached
+     * @param id of the row
+     * @param task viewing the row
+     */
+    void setView(int id, Task task) {
+        views[checkId(id)] = new WeakReference<>(task);
+    }
+
+    /**
+     * Tells a row's view, if anything holds one, that its text or date changed
+     * @param id of the row
+     */
+    private void displayChanged(int id) {
+        WeakReference<Task> ref = views[id];
+        Task task = ref == null ? null : ref.get();
+        if (task != null) {
+            task.displayChanged();
+        }
+    }
+
+    /**
+     * Set listener for checkbox changes made through views
+     * @param listener to call, or null
+     */
+    public void setCompletionListener(CompletionListener listener) {
+        this.completionListener = listener;
+    }
+
+    /**
+     * Set what every checkbox change made through a view runs inside, e.g.
+     * TaskService::write so a checkbox clicked in the table takes its lock
+     * @param writes taking the change to run
+     */
+    public void setCompletionWrites(Consumer<Runnable> writes) {
+        this.completionWrites = writes;
+    }
+
+    /**
+     * Runs a checkbox change made through a view inside the completion writes
+     */
+    void writeCompletion(Runnable change) {
+        completionWrites.accept(change);
+    }
+
+    /**
+     * Reports a checkbox change made through a view
+     */
+    void completionChanged(Task task, boolean oldValue, boolean newValue) {
+        if (completionListener != null) {
+            completionListener.changed(task, oldValue, newValue);
+        }
+    }
+
+    /**
+     * Copies the list into a new compact store, in list order
+     * The copy reads descriptions out of this store's arena, which is only
+     * ever appended to, so this is a handful of int array copies
+     * @return detached copy to save or read from another thread
+     */
+    public TaskStore snapshot() {
+        TaskStore copy = new TaskStore();
+        int capacity = Math.max(INITIAL_CAPACITY, size);
+        copy.days = new int[capacity];
+        copy.textStarts = new int[capacity];
+        copy.views = newViews(capacity);
+        copy.completed = new long[(capacity + 63) / 64];
+        copy.order = new int[capacity];
+        long used = 0;
+        for (int i = 0; i < size; i++) {
+            int id = order[i];
+            copy.days[i] = days[id];
+            copy.textStarts[i] = textStarts[id];
+            used += entrySize(textLength(id));
+            if (isCompleted(id)) {
+                copy.completed[i >>> 6] |= 1L << i;
+            }
+            copy.order[i] = i;
+        }
+        copy.arena = arena;
+        copy.arenaSize = arenaSize;
+        copy.garbage = (int) (arenaSize - used);
+        copy.arenaShared = true;
+        copy.rows = size;
+        copy.size = size;
+        copy.live.set(0, size);
+        return copy;
+    }
+
+    /**
+     * Orders two rows by due date, then description
+     * Descriptions compare by code point, which only differs from
+     * String.compareTo between supplementary and U+E000..U+FFFF characters
+     * @param a first row id
+     * @param b second row id
+     * @return negative, zero or positive like a Comparator
+     */
+    public int compare(int a, int b) {
+        int byDay = Integer.compare(days[checkId(a)], days[checkId(b)]);
+        if (byDay != 0) {
+            return byDay;
+        }
+        int startA = textOffset(a);
+        int startB = textOffset(b);
+        return Arrays.compareUnsigned(arena, startA, startA + textLength(a),
+                arena, startB, startB + textLength(b));
+    }
+
+    /**
+     * Orders rows of two different stores by due date, then description, like compare
+     * @param a store holding the first row
+     * @param idA first row id
+     * @param b store holding the second row
+     * @param idB second row id
+     * @return negative, zero or positive as the first row sorts before, with or after the second
+     */
+    static int compare(TaskStore a, int idA, TaskStore b, int idB) {
+        int byDay = Integer.compare(a.days[a.checkId(idA)], b.days[b.checkId(idB)]);
+        if (byDay != 0) {
+            return byDay;
+        }
+        int startA = a.textOffset(idA);
+        int startB = b.textOffset(idB);
+        return Arrays.compareUnsigned(a.arena, startA, startA + a.textLength(idA),
+                b.arena, startB, startB + b.textLength(idB));
+    }
+
+    /**
+     * Sorts the list by due date, then description, without building any tasks
+     * The sort is stable, so equal rows keep their order
+     * @return new position of each old position, or null if nothing moved
+     */
+    public int[] sort() {
+        long start = System.nanoTime();
+        int[] moved = sortOrder();
+        SORT_TIME.recordSince(start);
+        return moved;
+    }
+
+    private int[] sortOrder() {
+        if (isSorted(0, size)) {
+            return null;
+        }
+        // Dates sort as primitive keys, the old position in the low half keeps it stable
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = ((long) days[order[i]] << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] positions = new int[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = (int) keys[i];
+        }
+        // Only rows sharing a date need their descriptions compared
+        int[] offsets = new int[size];
+        int[] lengths = new int[size];
+        int[] scratch = new int[size];
+        for (int from = 0; from < size; ) {
+            int to = from + 1;
+            while (to < size && (keys[to] >> 32) == (keys[from] >> 32)) {
+                to++;
+            }
+            if (to - from > 1) {
+                for (int i = from; i < to; i++) {
+                    offsets[positions[i]] = textOffset(order[positions[i]]);
+                    lengths[positions[i]] = textLength(order[positions[i]]);
+                }
+                mergeSort(positions, scratch, from, to, (x, y) -> Arrays.compareUnsigned(
+                        arena, offsets[x], offsets[x] + lengths[x], arena, offsets[y], offsets[y] + lengths[y]));
+            }
+            from = to;
+        }
+        int[] sorted = new int[Math.max(INITIAL_CAPACITY, order.length)];
+        int[] moved = new int[size];
+        for (int i = 0; i < size; i++) {
+            sorted[i] = order[positions[i]];
+            moved[positions[i]] = i;
+        }
+        order = sorted;
+        return moved;
+    }
+
+    /**
+     * Finds the positions of every row passing a test, reading only the columns
+     * @param test taking a row id, e.g. store::isCompleted
+     * @return matching list positions
+     */
+    public BitSet positionsWhere(IntPredicate test) {
+        BitSet positions = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            if (test.test(order[i])) {
+                positions.set(i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Finds the rows in the list with a given completion
+     * Reads the completion column a word of 64 rows at a time
+     * @param value completion to look for
+     * @return matching row ids
+     */
+    public BitSet rowsWhereCompleted(boolean value) {
+        BitSet rows = BitSet.valueOf(completed);
+        if (value) {
+            rows.and(live);
+            return rows;
+        }
+        BitSet open = (BitSet) live.clone();
+        open.andNot(rows);
+        return open;
+    }
+
+    /**
+     * Drops spare capacity and the bytes of replaced descriptions
+     * Worth calling once a file has finished loading
+     */
+    public void trimToSize() {
+        resizeRows(Math.max(INITIAL_CAPACITY, rows));
+        order = Arrays.copyOf(order, Math.max(INITIAL_CAPACITY, size));
+        compactArena(arenaSize - garbage);
+    }
+
+    /**
+     * Get roughly how much heap the store holds, columns and arena included
+     * Views are weak and not counted
+     * @return estimated bytes
+     */
+    public long estimatedBytes() {
+        return 4L * days.length + 4L * textStarts.length + 4L * views.length
+                + 8L * completed.length + 4L * order.length + arena.length;
+    }
+
+    /**
+     * Get the arena holding every description
+     * Only valid until the next description is added or changed
+     * @return UTF-8 bytes, read with textOffset and textLength
+     */
+    byte[] textBytes() {
+        return arena;
+    }
+
+    /**
+     * Get where a row's description starts in the arena
+     * @param id of the row
+     * @return offset of the first byte
+     */
+    int textOffset(int id) {
+        int position = textStarts[checkId(id)];
+        while (arena[position++] < 0) {
+            // skip the length prefix
+        }
+        return position;
+    }
+
+    /**
+     * Get a row's description length without decoding it
+     * @param id of the row
+     * @return length in UTF-8 bytes
+     */
+    int textLength(int id) {
+        int position = textStarts[checkId(id)];
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = arena[position++];
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return length;
+            }
+        }
+    }
+
+    /**
+     * Get a row's due date as a date
+     * @param id of the row
+     * @return due date
+     */
+    public LocalDate date(int id) {
+        return LocalDate.ofEpochDay(epochDay(id));
+    }
+
+    /**
+     * Marks rows as in the list, undoing it if any of them already was
+     */
+    private void markLive(int[] ids, int count) {
+        for (int i = 0; i < count; i++) {
+            if (live.get(checkId(ids[i]))) {
+                for (int j = 0; j < i; j++) {
+                    live.clear(ids[j]);
+                }
+                throw new IllegalArgumentException("Row already in the list: " + ids[i]);
+            }
+            live.set(ids[i]);
+        }
+    }
+
+    /**
+     * Finds where a row goes among the list positions from a start, probing
+     * 1, 2, 4... positions ahead before a binary search over the last step
+     * @return first position at or after from whose row sorts after id
+     */
+    private int gallop(int id, int from) {
+        int low = from;
+        int bound = 1;
+        while (bound <= size - from && compare(order[from + bound - 1], id) <= 0) {
+            low = from + bound;
+            bound <<= 1;
+        }
+        return upperBound(id, low, Math.min(size, from + bound - 1));
+    }
+
+    /**
+     * Binary search for the first position in a sorted range past every row
+     * that doesn't sort after the given one
+     */
+    private int upperBound(int id, int from, int to) {
+        int low = from;
+        int high = to;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(order[middle], id) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private boolean isSorted(int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            if (compare(order[i - 1], order[i]) > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stable merge sort of an int range, insertion sorting short runs
+     */
+    private static void mergeSort(int[] a, int[] scratch, int from, int to, IntBinaryOperator comparator) {
+        if (to - from <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && comparator.applyAsInt(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(a, scratch, from, middle, comparator);
+        mergeSort(a, scratch, middle, to, comparator);
+        if (comparator.applyAsInt(a[middle - 1], a[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && comparator.applyAsInt(scratch[left], scratch[right]) <= 0)) {
+                a[i] = scratch[left++];
+            } else {
+                a[i] = scratch[right++];
+            }
+        }
+    }
+
+    private void resizeRows(int capacity) {
+        days = Arrays.copyOf(days, capacity);
+        textStarts = Arrays.copyOf(textStarts, capacity);
+        views = Arrays.copyOf(views, capacity);
+        completed = Arrays.copyOf(completed, (capacity + 63) / 64);
+    }
+
+    /**
+     * Copies a description into the arena behind its length
+     * @return arena offset of the entry
+     */
+    private int appendText(byte[] bytes, int offset, int length) {
+        int start = reserveText(length);
+        System.arraycopy(bytes, offset, arena, arenaSize - length, length);
+        return start;
+    }
+
+    /**
+     * Writes a length prefix and leaves room for the bytes right after it
+     * @return arena offset of the entry
+     */
+    private int reserveText(int length) {
+        int needed = entrySize(length);
+        if (arenaShared || needed > arena.length - arenaSize) {
+            makeRoom(needed);
+        }
+        int start = arenaSize;
+        int position = start;
+        int value = length;
+        while (value >= 0x80) {
+            arena[position++] = (byte) (value | 0x80);
+            value >>>= 7;
+        }
+        arena[position++] = (byte) value;
+        arenaSize = position + length;
+        return start;
+    }
+
+    /**
+     * Grows the arena, or compacts it if most of it is replaced descriptions
+     */
+    private void makeRoom(int needed) {
+        long used = (long) arenaSize - garbage;
+        if (used + needed > MAX_ARENA) {
+            throw new OutOfMemoryError("Task descriptions exceed " + MAX_ARENA + " bytes");
+        }
+        long grown = Math.max((long) arenaSize + needed, arenaSize + (arenaSize >> 1));
+        if (garbage > arenaSize / 2 || grown > MAX_ARENA) {
+            compactArena((int) Math.min(MAX_ARENA, Math.max(used + needed, used + (used >> 1))));
+        } else {
+            arena = Arrays.copyOf(arena, (int) grown);
+            arenaShared = false;
+        }
+    }
+
+    /**
+     * Copies every row's description into a new arena, dropping replaced ones
+     * Always builds a new array, so snapshots reading the old one are unaffected
+     */
+    private void compactArena(int capacity) {
+        byte[] compacted = new byte[Math.max(capacity, INITIAL_CAPACITY)];
+        int position = 0;
+        for (int id = 0; id < rows; id++) {
+            int entry = entrySize(textLength(id));
+            System.arraycopy(arena, textStarts[id], compacted, position, entry);
+            textStarts[id] = position;
+            position += entry;
+        }
+        arena = compacted;
+        arenaSize = position;
+        garbage = 0;
+        arenaShared = false;
+    }
+
+    /**
+     * Get the arena space a description takes, length prefix included
+     */
+    private static int entrySize(int length) {
+        int prefix = 1;
+        for (int value = length; value >= 0x80; value >>>= 7) {
+            prefix++;
+        }
+        return prefix + length;
+    }
+
+    private void ensureOrderCapacity(int capacity) {
+        if (capacity > order.length) {
+            order = Arrays.copyOf(order, Math.max(capacity, order.length * 2));
+        }
+    }
+
+    private int checkId(int id) {
+        if (id < 0 || id >= rows) {
+            throw new IndexOutOfBoundsException("Row " + id + " of " + rows);
+        }
+        return id;
+    }
+
+    private static void checkPosition(int position, int bound) {
+        if (position < 0 || position >= bound) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + bound);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WeakReference<Task>[] newViews(int capacity) {
+        return (WeakReference<Task>[]) new WeakReference<?>[capacity];
+    }
+}
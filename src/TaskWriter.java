@@ -0,0 +1,207 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Encodes tasks straight into a byte buffer and writes it to a channel
+ * Produces the same "task - date - completed" lines as Task.serialize()
+ * without building a String per task
+ */
+public class TaskWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] SEPARATOR = " - ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+    private static final ThreadLocal<byte[]> BUFFERS = ThreadLocal.withInitial(() -> new byte[BUFFER_SIZE]);
+
+    private final FileChannel channel;
+    private final byte[] buf;
+    private int position;
+
+    /**
+     * 1-param constructor
+     * Reuses the calling thread's buffer, so use one writer per thread at a time
+     * @param channel to write to
+     */
+    public TaskWriter(FileChannel channel) {
+        this.channel = channel;
+        this.buf = BUFFERS.get();
+    }
+
+    /**
+     * Writes one task as a line
+     * @param task to write
+     * @throws IOException if issue writing
+     */
+    public void write(Task task) throws IOException {
+        write(task.getTask(), task.getDate(), task.isCompleted());
+    }
+
+    /**
+     * Writes one row of a store as a line
+     * @param store holding the row
+     * @param id of the row
+     * @throws IOException if issue writing
+     */
+    public void write(TaskStore store, int id) throws IOException {
+        writeBytes(store.textBytes(), store.textOffset(id), store.textLength(id));
+        writeBytes(SEPARATOR);
+        writeDate(store.date(id));
+        writeBytes(SEPARATOR);
+        writeBytes(store.isCompleted(id) ? TRUE : FALSE);
+        writeBytes(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes one task line from an already encoded description, as TaskParser hands it over
+     * @param buf holding the UTF-8 description
+     * @param start of the description
+     * @param end of the description, exclusive
+     * @param epochDay due date
+     * @param completed completion
+     * @throws IOException if issue writing
+     */
+    public void write(byte[] buf, int start, int end, int epochDay, boolean completed) throws IOException {
+        writeBytes(buf, start, end - start);
+        writeBytes(SEPARATOR);
+        writeDate(LocalDate.ofEpochDay(epochDay));
+        writeBytes(SEPARATOR);
+        writeBytes(completed ? TRUE : FALSE);
+        writeBytes(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes a line as it is, e.g. one TaskParser couldn't parse
+     * @param buf holding the line
+     * @param start of the line
+     * @param end of the line, exclusive, without its line break
+     * @throws IOException if issue writing
+     */
+    public void writeLine(byte[] buf, int start, int end) throws IOException {
+        writeBytes(buf, start, end - start);
+        writeBytes(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes one task line from its values
+     * @param text description
+     * @param date due date
+     * @param completed completion
+     * @throws IOException if issue writing
+     */
+    public void write(String text, LocalDate date, boolean completed) throws IOException {
+        writeText(text);
+        writeBytes(SEPARATOR);
+        writeDate(date);
+        writeBytes(SEPARATOR);
+        writeBytes(completed ? TRUE : FALSE);
+        writeBytes(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes out whatever is still buffered
+     * @throws IOException if issue writing
+     */
+    public void flush() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(buf, 0, position);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        position = 0;
+    }
+
+    /**
+     * Flushes, leaving the channel open for the caller to close
+     * @throws IOException if issue writing
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * UTF-8 encodes a string, unpaired surrogates become '?' like String.getBytes
+     */
+    private void writeText(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            if (position > buf.length - 4) {
+                flush();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buf[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[position++] = (byte) (0xC0 | (c >> 6));
+                buf[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buf[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buf[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buf[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buf[position++] = '?';
+            } else {
+                buf[position++] = (byte) (0xE0 | (c >> 12));
+                buf[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    /**
+     * Writes yyyy-MM-dd digits directly, other years go through LocalDate.toString
+     */
+    private void writeDate(LocalDate date) throws IOException {
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            writeBytes(date.toString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        if (position > buf.length - 10) {
+            flush();
+        }
+        writeDigits(year, 4);
+        buf[position++] = '-';
+        writeDigits(date.getMonthValue(), 2);
+        buf[position++] = '-';
+        writeDigits(date.getDayOfMonth(), 2);
+    }
+
+    private void writeDigits(int value, int count) {
+        for (int i = position + count - 1; i >= position; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += count;
+    }
+
+    private void writeBytes(byte[] bytes) throws IOException {
+        writeBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Copies already encoded bytes, writing long runs straight to the channel
+     */
+    private void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+        if (position > buf.length - length) {
+            flush();
+            if (length > buf.length) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                return;
+            }
+        }
+        System.arraycopy(bytes, offset, buf, position, length);
+        position += length;
+    }
+}
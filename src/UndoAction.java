@@ -11,4 +11,21 @@ public interface UndoAction {
      * Redoes an undone action
      */
     void redo();
+
+    /**
+     * Estimates the memory this action keeps alive, for limiting the history
+     * @return estimated bytes
+     */
+    default long estimatedBytes() {
+        return 64;
+    }
+
+    /**
+     * Called once the action has fallen off the bottom of the undo history,
+     * or the whole history was cleared, so it can free what only it was keeping.
+     * A redo action dropped by a new change isn't discarded, since older
+     * undo actions may still bring back the rows it refers to
+     */
+    default void discard() {
+    }
 }
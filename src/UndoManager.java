@@ -1,19 +1,69 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
 /**
  * Manages undo/redo of tasks
+ * The history is bounded by a number of actions and by the estimated bytes
+ * they keep alive, dropping the oldest actions first once either is passed.
+ * Actions pushed between beginCompound and endCompound are undone as one,
+ * and every undo / redo runs inside the batch set with setBatch
  */
 public class UndoManager {
 
+    public static final int DEFAULT_MAX_DEPTH = 1000;
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final Metrics.Histogram UNDO_TIME = Metrics.histogram("undo");
+    private static final Metrics.Histogram REDO_TIME = Metrics.histogram("redo");
+    private static final Metrics.Gauge UNDO_DEPTH = Metrics.gauge("undo.depth");
+    private static final Metrics.Gauge HISTORY_SIZE = Metrics.gauge("undo.history");
+    private static final Metrics.Gauge HISTORY_BYTES = Metrics.gauge("undo.history.bytes");
+
     private final BackupStack undoStack = new BackupStack();
     private final BackupStack redoStack = new BackupStack();
+    private final int maxDepth;
+    private final long maxBytes;
     private boolean performing = false;
+    private Consumer<Runnable> batch = Runnable::run;
+    private List<UndoAction> compound;
+    private int compoundDepth = 0;
+
+    /**
+     * non-param constructor, uses the default limits
+     */
+    public UndoManager() {
+        this(DEFAULT_MAX_DEPTH, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * 2-param constructor
+     * The most recent action is always kept, even if it alone passes a limit
+     * @param maxDepth most actions to keep
+     * @param maxBytes most estimated bytes for the kept actions to hold
+     */
+    public UndoManager(int maxDepth, long maxBytes) {
+        if (maxDepth < 1 || maxBytes < 0) {
+            throw new IllegalArgumentException("Invalid undo limits: " + maxDepth + ", " + maxBytes);
+        }
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+    }
 
     /**
      * Push an action to the undo stack
      * @param action to push
      */
     public void push(UndoAction action) {
+        if (compoundDepth > 0) {
+            compound.add(action);
+            return;
+        }
         undoStack.push(action);
+        // Not discarded, an undo action still in the history may bring back what they removed
         redoStack.clear();
+        trim();
+        updateGauges();
     }
 
     /**
@@ -21,13 +71,16 @@ public class UndoManager {
      */
     public void undo() {
         if (!undoStack.isEmpty()) {
+            long start = System.nanoTime();
             performing = true;
 
             UndoAction action = undoStack.pop();
-            action.undo();
+            batch.accept(action::undo);
 
             redoStack.push(action);
             performing = false;
+            UNDO_TIME.recordSince(start);
+            updateGauges();
         }
     }
 
@@ -36,16 +89,70 @@ public class UndoManager {
      */
     public void redo() {
         if (!redoStack.isEmpty()) {
+            long start = System.nanoTime();
             performing = true;
 
             UndoAction action = redoStack.pop();
-            action.redo();
+            batch.accept(action::redo);
 
             undoStack.push(action);
             performing = false;
+            REDO_TIME.recordSince(start);
+            updateGauges();
+        }
+    }
+
+    /**
+     * Starts grouping pushed actions into one undo step
+     * Calls can nest, the group ends with the outermost endCompound
+     */
+    public void beginCompound() {
+        if (compoundDepth++ == 0) {
+            compound = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Ends a group started by beginCompound and pushes it as one action
+     * An empty group pushes nothing, a group of one pushes just that action
+     */
+    public void endCompound() {
+        if (compoundDepth == 0) {
+            throw new IllegalStateException("endCompound without beginCompound");
+        }
+        if (--compoundDepth == 0) {
+            List<UndoAction> actions = compound;
+            compound = null;
+            if (actions.size() == 1) {
+                push(actions.get(0));
+            } else if (!actions.isEmpty()) {
+                push(new CompoundAction(actions));
+            }
+        }
+    }
+
+    /**
+     * Runs changes, grouping the actions they push into one undo step
+     * @param changes to run
+     */
+    public void compound(Runnable changes) {
+        beginCompound();
+        try {
+            changes.run();
+        } finally {
+            endCompound();
         }
     }
 
+    /**
+     * Set what every undo and redo runs inside, e.g. TaskList::batch so an
+     * undo fires one list change however many actions it replays
+     * @param batch taking the undo / redo to run
+     */
+    public void setBatch(Consumer<Runnable> batch) {
+        this.batch = batch;
+    }
+
     /**
      * Boolean to control if runnable from either stack is running
      * Turning this on and off while running prevents errors
@@ -59,7 +166,56 @@ public class UndoManager {
      * Clear all past action data
      */
     public void clear() {
-        undoStack.clear();
-        redoStack.clear();
+        discardAll(undoStack);
+        discardAll(redoStack);
+        updateGauges();
+    }
+
+    /**
+     * Get number of actions in the history
+     * @return undo and redo actions held
+     */
+    public int getHistorySize() {
+        return undoStack.size() + redoStack.size();
+    }
+
+    /**
+     * Get estimated bytes the history keeps alive
+     * @return estimated bytes of undo and redo actions
+     */
+    public long getHistoryBytes() {
+        return undoStack.getBytes() + redoStack.getBytes();
+    }
+
+    /**
+     * Drops the oldest undo actions until the history is within its limits
+     * Only undo actions are dropped, redo actions are dropped on every push.
+     * Every newer action was made after the oldest one, so none of them can
+     * bring back what it removed and it can free it
+     */
+    private void trim() {
+        while (undoStack.size() > 1
+                && (undoStack.size() > maxDepth || undoStack.getBytes() > maxBytes)) {
+            undoStack.removeOldest().discard();
+        }
+    }
+
+    /**
+     * Empties a stack, letting each action free what only it was keeping
+     * Only for when the whole history goes
+     */
+    private static void discardAll(BackupStack stack) {
+        while (!stack.isEmpty()) {
+            stack.removeOldest().discard();
+        }
+    }
+
+    /**
+     * Publishes the history's depth, size and bytes to Metrics
+     */
+    private void updateGauges() {
+        UNDO_DEPTH.set(undoStack.size());
+        HISTORY_SIZE.set(getHistorySize());
+        HISTORY_BYTES.set(getHistoryBytes());
     }
-}
\ No newline at end of file
+}
@@ -1,7 +1,4 @@
-import javafx.scene.control.Alert;
-
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.PrintWriter;
 import java.io.IOException;
 import java.util.Scanner;
@@ -17,16 +14,15 @@ public class UserFile {
     /**
      * Saves the file being used when app is closed
      * @param file to save
+     * @throws IOException if issue saving
      */
-    public static void saveLastFile(File file) {
+    public static void saveLastFile(File file) throws IOException {
         try (PrintWriter writer = new PrintWriter(FILE)) {
             if (file != null) {
                 writer.print(file.toPath());
             } else {
                 writer.print("");
             }
-        } catch (FileNotFoundException e) {
-            new Alert(Alert.AlertType.ERROR, "Issue saving previous file").showAndWait();
         }
     }
 
@@ -0,0 +1,157 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Task lists kept in memory after switching away from them, so switching
+ * back doesn't read the file again
+ * Lists are dropped least recently used first once their estimated size
+ * passes the memory budget. Each list remembers the version of its file
+ * its last save left behind and the version of its journal, and is only
+ * handed back if those still match, so a file changed on disk is parsed
+ * again. Nothing is read but the files' attributes
+ */
+public class Workspace {
+
+    public static final long DEFAULT_BUDGET_BYTES = 256L << 20;
+
+    /**
+     * What a task file and its journal looked like on disk
+     */
+    private static final class Stamp {
+        private final FileWatcher.Version version;
+        private final FileWatcher.Version journalVersion;
+
+        private Stamp(File file, FileWatcher.Version version) {
+            this.version = version;
+            this.journalVersion = FileWatcher.Version.of(TaskJournal.journalFor(file));
+        }
+
+        private boolean matches(File file) {
+            return version.equals(FileWatcher.Version.of(file))
+                    && Objects.equals(journalVersion, FileWatcher.Version.of(TaskJournal.journalFor(file)));
+        }
+    }
+
+    /**
+     * A list put away, with its file's stamp
+     */
+    private static final class Entry {
+        private final TaskStore store;
+        private final Stamp stamp;
+        private final long bytes;
+
+        private Entry(TaskStore store, Stamp stamp) {
+            this.store = store;
+            this.stamp = stamp;
+            this.bytes = store.estimatedBytes();
+        }
+    }
+
+    // Access order, so iteration starts at the least recently used list
+    private final LinkedHashMap<File, Entry> lists = new LinkedHashMap<>(16, 0.75f, true);
+    private final long budgetBytes;
+    private long bytes;
+
+    /**
+     * non-param constructor, uses the default budget
+     */
+    public Workspace() {
+        this(DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * 1-param constructor
+     * @param budgetBytes most estimated bytes the kept lists may hold
+     */
+    public Workspace(long budgetBytes) {
+        if (budgetBytes < 0) {
+            throw new IllegalArgumentException("Invalid workspace budget: " + budgetBytes);
+        }
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * Keeps a list that matches its file on disk
+     * A list bigger than the whole budget isn't kept
+     * @param file the list was loaded from and saved to
+     * @param store the list, no longer changed by anything else
+     * @param version of the file that holds the list, e.g. the one its last save left behind,
+     *                or null if unknown, the list then isn't kept
+     */
+    public synchronized void put(File file, TaskStore store, FileWatcher.Version version) {
+        remove(file);
+        if (version == null) {
+            return;
+        }
+        Entry entry = new Entry(store, new Stamp(file, version));
+        if (entry.bytes > budgetBytes) {
+            return;
+        }
+        lists.put(key(file), entry);
+        bytes += entry.bytes;
+        Iterator<Entry> oldest = lists.values().iterator();
+        while (bytes > budgetBytes) {
+            bytes -= oldest.next().bytes;
+            oldest.remove();
+        }
+    }
+
+    /**
+     * Takes a kept list back out, if its file hasn't changed since
+     * @param file to open
+     * @return the list, or null if it wasn't kept or its file changed
+     */
+    public synchronized TaskStore take(File file) {
+        Entry entry = lists.remove(key(file));
+        if (entry == null) {
+            return null;
+        }
+        bytes -= entry.bytes;
+        return entry.stamp.matches(file) ? entry.store : null;
+    }
+
+    /**
+     * Forgets a kept list, e.g. once its file is written by something else
+     * @param file of the list
+     */
+    public synchronized void remove(File file) {
+        Entry entry = lists.remove(key(file));
+        if (entry != null) {
+            bytes -= entry.bytes;
+        }
+    }
+
+    /**
+     * Get the files of the kept lists
+     * @return most recently used first
+     */
+    public synchronized List<File> getFiles() {
+        List<File> files = new ArrayList<>(lists.keySet());
+        Collections.reverse(files);
+        return files;
+    }
+
+    /**
+     * Get estimated bytes the kept lists hold
+     * @return estimated bytes, within the budget
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return number of lists kept
+     */
+    public synchronized int size() {
+        return lists.size();
+    }
+
+    private static File key(File file) {
+        return file.getAbsoluteFile();
+    }
+}